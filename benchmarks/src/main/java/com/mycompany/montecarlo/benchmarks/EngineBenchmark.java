@@ -0,0 +1,84 @@
+package com.mycompany.montecarlo.benchmarks;
+
+import com.mycompany.montecarlo.Integrator;
+import com.mycompany.montecarlo.BatchFunction;
+import com.mycompany.montecarlo.ExpressionCompiler;
+import com.mycompany.montecarlo.PointBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The App entry points the UI spends its time in, over the number of points,
+ * the width of the interval and the cost of the equation.
+ *
+ * The state is shared between threads, so running with -t n measures how the
+ * engine scales when n integrations run at the same time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({Equations.SIMPLE, Equations.MEDIUM, Equations.COMPLEX})
+    public String equation;
+
+    @Param({"1000", "100000"})
+    public int numPoints;
+
+    @Param({"2", "200"})
+    public double width; // The interval is [-width / 2, width / 2]
+
+    private BatchFunction function;
+    private double lowerBound;
+    private double upperBound;
+    private double[] range;
+    private PointBuffer points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        function = ExpressionCompiler.compile(equation);
+        lowerBound = -width / 2;
+        upperBound = width / 2;
+        range = Integrator.getRange(function, lowerBound, upperBound);
+        points = Integrator.plotPoints(lowerBound, upperBound, range[0], range[1], numPoints, Equations.SEED);
+    }
+
+    @Benchmark
+    public double integrateMonteCarlo() {
+        return Integrator.integrateMonteCarlo(function, lowerBound, upperBound, points); // Also finds the range, like the UI
+    }
+
+    @Benchmark
+    public double integrateRiem() {
+        return Integrator.integrateRiem(function, lowerBound, upperBound, numPoints, "left");
+    }
+
+    @Benchmark
+    public double getMin() {
+        return Integrator.getMin(function, lowerBound, upperBound);
+    }
+
+    @Benchmark
+    public double getMax() {
+        return Integrator.getMax(function, lowerBound, upperBound);
+    }
+
+    @Benchmark
+    public PointBuffer plotPoints() {
+        return Integrator.plotPoints(lowerBound, upperBound, range[0], range[1], numPoints, Equations.SEED);
+    }
+}
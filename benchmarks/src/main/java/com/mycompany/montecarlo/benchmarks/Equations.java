@@ -0,0 +1,19 @@
+package com.mycompany.montecarlo.benchmarks;
+
+/**
+ * Equations of increasing cost shared by the benchmarks, so results can be
+ * compared across benchmark classes.
+ */
+final class Equations {
+
+    static final String SIMPLE = "x^2";
+
+    static final String MEDIUM = "sin(x) + cos(2x) + x^2 / 4";
+
+    static final String COMPLEX = "sqrt(abs(x)) * e^(-x^2 / 100) + log(x^2 + 1) - 3sin(x)cos(x / 3) + cbrt(x)";
+
+    static final long SEED = 42; // Every benchmark throws the same points
+
+    private Equations() {
+    }
+}
@@ -0,0 +1,98 @@
+package com.mycompany.montecarlo.benchmarks;
+
+import com.mycompany.montecarlo.BatchFunction;
+import com.mycompany.montecarlo.ExpressionCompiler;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one evaluation of f(x) for every way the engine can evaluate an
+ * equation, and the one-off cost of compiling it.
+ *
+ * Each invocation evaluates a chunk of BatchFunction.CHUNK_SIZE x values, so
+ * the scores are evaluations per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    @Param({Equations.SIMPLE, Equations.MEDIUM, Equations.COMPLEX})
+    public String equation;
+
+    private final double[] xs = new double[BatchFunction.CHUNK_SIZE];
+    private final double[] out = new double[BatchFunction.CHUNK_SIZE];
+
+    private BatchFunction compiled;
+    private DoubleUnaryOperator interpreted;
+    private Expression expression;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(Equations.SEED);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble(-10, 10);
+        }
+        compiled = ExpressionCompiler.compile(equation);
+        expression = new ExpressionBuilder(equation).variable("x").build();
+        interpreted = ExpressionCompiler.interpret(new ExpressionBuilder(equation).variable("x").build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BatchFunction.CHUNK_SIZE)
+    public double[] compiledBatch() {
+        compiled.evaluate(xs, out, 0, xs.length);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BatchFunction.CHUNK_SIZE)
+    public double[] compiledScalar() {
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = compiled.applyAsDouble(xs[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BatchFunction.CHUNK_SIZE)
+    public double[] interpreted() {
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = interpreted.applyAsDouble(xs[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BatchFunction.CHUNK_SIZE)
+    public double[] exp4j() {
+        for (int i = 0; i < xs.length; i++) {
+            expression.setVariable("x", xs[i]);
+            out[i] = expression.evaluate();
+        }
+        return out;
+    }
+
+    @Benchmark
+    public BatchFunction compile() {
+        return ExpressionCompiler.compile(equation);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mycompany.montecarlo.benchmarks;
+
+import com.mycompany.montecarlo.BatchFunction;
+import com.mycompany.montecarlo.ExpressionCompiler;
+import com.mycompany.montecarlo.ParallelMonteCarlo;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Strong scaling of one large hit-or-miss integration over the number of
+ * worker threads of ParallelMonteCarlo. Ideal scaling halves the time every
+ * time the threads double, up to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @Param({Equations.SIMPLE, Equations.COMPLEX})
+    public String equation;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"4194304"})
+    public long numPoints;
+
+    private BatchFunction function;
+
+    @Setup
+    public void setUp() {
+        function = ExpressionCompiler.compile(equation);
+    }
+
+    @Benchmark
+    public double integrate() {
+        return ParallelMonteCarlo.integrate(function, -10, 10, numPoints, Equations.SEED, threads);
+    }
+}
@@ -0,0 +1,415 @@
+package com.mycompany.montecarlo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless batch mode: integrates a file of jobs on a thread pool. It lives
+ * in the core module, so it runs without JavaFX on the module path:
+ *
+ * <pre>
+ * java -m com.mycompany.montecarlo.core/com.mycompany.montecarlo.BatchRunner jobs.txt --format json
+ * </pre>
+ *
+ * Every non-blank line of the job file that doesn't start with # is one job:
+ *
+ * <pre>
+ * equation;lowerBound;upperBound;method;numPoints[;seed]
+ * </pre>
+ *
+ * Fields are separated by semicolons since equations can contain commas. The
+ * method is one of hit-or-miss, mean-value, stratified, latin-hypercube,
+ * importance, quasi, gauss-kronrod, or a Riemann rule (left, right, midpoint,
+ * trapezoid, simpson, romberg). Without a seed a random one is drawn, and it's
+ * reported so the job can be replayed. Hit-or-miss and mean-value jobs stream
+ * their points through ParallelMonteCarlo, so they take any number of points
+ * in constant memory.
+ *
+ * Results are written as CSV or JSON lines, one per job in the order of the
+ * file, as soon as the job and every job before it finished. A job that fails
+ * gets a line with its error instead of stopping the batch. The phases of
+ * every job are recorded by getMonitor().
+ */
+public final class BatchRunner {
+
+    /**
+     * Output formats
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    static final String CSV_HEADER = "line,equation,lower,upper,method,points,seed,estimate,error,millis,status";
+
+    static final int JOBS_PER_THREAD = 4; // Jobs queued ahead per thread, bounds memory on huge files
+
+    private static final LruCache<String, BatchFunction> FUNCTIONS = new LruCache<>(1024, function -> 1); // Batch files repeat equations
+
+    private static final PerformanceMonitor MONITOR = new PerformanceMonitor(); // Parse, continuity and integration of every job
+
+    private BatchRunner() {
+    }
+
+    /**
+     * @return the monitor recording the phases of the jobs run so far, across
+     * all threads
+     */
+    public static PerformanceMonitor getMonitor() {
+        return MONITOR;
+    }
+
+    /**
+     * One line of the job file
+     */
+    static final class Job {
+
+        final int line;
+        final String equation;
+        final double lowerBound;
+        final double upperBound;
+        final String method;
+        final long numPoints;
+        final long seed;
+
+        Job(int line, String equation, double lowerBound, double upperBound, String method, long numPoints, long seed) {
+            this.line = line;
+            this.equation = equation;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.method = method;
+            this.numPoints = numPoints;
+            this.seed = seed;
+        }
+
+        /**
+         * @param text the line
+         * @param line its line number, from 1
+         * @return the job
+         * @throws IllegalArgumentException if the line is not a valid job
+         */
+        static Job parse(String text, int line) {
+            String[] fields = text.split(";", -1);
+            if (fields.length != 5 && fields.length != 6) {
+                throw new IllegalArgumentException("Expected equation;lower;upper;method;points[;seed]");
+            }
+            try {
+                double lowerBound = Double.parseDouble(fields[1].trim());
+                double upperBound = Double.parseDouble(fields[2].trim());
+                long numPoints = Long.parseLong(fields[4].trim());
+                long seed = fields.length == 6 ? Long.parseLong(fields[5].trim()) : new SplittableRandom().nextLong();
+                if (!(lowerBound < upperBound)) {
+                    throw new IllegalArgumentException("Lower bound must be strictly less than upper bound");
+                }
+                if (numPoints <= 0) {
+                    throw new IllegalArgumentException("Number of points must be positive");
+                }
+                return new Job(line, fields[0].trim(), lowerBound, upperBound, fields[3].trim().toLowerCase(Locale.ROOT), numPoints, seed);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs a job file and exits with 0 if every job succeeded, 1 if some
+     * failed and 2 on a usage or input error
+     *
+     * @param args the job file (- for standard input), then optionally
+     * --format csv|json and --threads n
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * @param args the command line of main()
+     * @return the exit code
+     */
+    static int run(String[] args) {
+        String file = null;
+        Format format = Format.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--format".equals(args[i]) && i + 1 < args.length) {
+                    format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (file == null) {
+                    file = args[i];
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("No job file");
+            }
+            if (threads <= 0) {
+                throw new IllegalArgumentException("Number of threads must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: BatchRunner <jobs file|-> [--format csv|json] [--threads n]");
+            return 2;
+        }
+
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        try (Reader in = "-".equals(file) ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            return run(in, out, format, threads) == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Can't read " + file + ": " + e.getMessage());
+            return 2;
+        }
+    }
+
+    /**
+     * Runs every job of a job file
+     *
+     * @param jobs the job file
+     * @param out receives one result line per job, flushed after every line
+     * @param format the output format
+     * @param threads number of jobs run at the same time
+     * @return the number of jobs that failed
+     * @throws IOException if reading the jobs or writing the results fails
+     */
+    public static int run(Reader jobs, Writer out, Format format, int threads) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<String[]>> pending = new ArrayDeque<>(); // Result fields, in file order
+        int[] failures = new int[1];
+
+        try {
+            if (format == Format.CSV) {
+                out.write(CSV_HEADER + "\n");
+            }
+            BufferedReader reader = new BufferedReader(jobs);
+            String text;
+            int line = 0;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank() || text.trim().startsWith("#")) {
+                    continue;
+                }
+                int lineNumber = line;
+                String jobText = text;
+                pending.add(pool.submit(() -> runJob(jobText, lineNumber)));
+                while (pending.size() >= threads * JOBS_PER_THREAD) {
+                    write(pending.poll(), out, format, failures);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, format, failures);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return failures[0];
+    }
+
+    private static void write(Future<String[]> result, Writer out, Format format, int[] failures) throws IOException {
+        String[] fields;
+        try {
+            fields = result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause()); // runJob catches every failure of a job
+        }
+        if (!"ok".equals(fields[fields.length - 1])) {
+            failures[0]++;
+        }
+        out.write(format == Format.CSV ? toCsv(fields) : toJson(fields));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Parses and integrates one job
+     *
+     * @return the fields of CSV_HEADER, the status is "ok" or the error
+     */
+    static String[] runJob(String text, int line) {
+        Job job;
+        try {
+            job = Job.parse(text, line);
+        } catch (IllegalArgumentException e) {
+            return new String[]{line + "", text.split(";", -1)[0].trim(), "", "", "", "", "", "", "", "", e.getMessage()};
+        }
+
+        long start = System.nanoTime();
+        double[] result;
+        String status = "ok";
+        try {
+            result = integrate(job);
+        } catch (RuntimeException e) {
+            result = new double[]{Double.NaN, Double.NaN};
+            status = e.getMessage() == null ? e.toString() : e.getMessage();
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        return new String[]{line + "", job.equation, job.lowerBound + "", job.upperBound + "", job.method, job.numPoints + "",
+            job.seed + "", result[0] + "", result[1] + "", String.format(Locale.ROOT, "%.3f", millis), status};
+    }
+
+    /**
+     * @return {estimate, error}. The error is the 95% half width for Monte
+     * Carlo methods, the error estimate for Gauss-Kronrod and NaN for Riemann
+     * rules
+     */
+    static double[] integrate(Job job) {
+        BatchFunction compiled;
+        try (PerformanceMonitor.Span span = MONITOR.start(PerformanceMonitor.Phase.PARSE)) {
+            compiled = FUNCTIONS.get(job.equation);
+            if (compiled == null) {
+                try {
+                    compiled = ExpressionCompiler.compile(job.equation);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid function");
+                }
+                FUNCTIONS.put(job.equation, compiled);
+            }
+        }
+        PerformanceMonitor.CountingFunction function = PerformanceMonitor.counting(compiled); // Per job, so concurrent jobs aren't mixed up
+        try (PerformanceMonitor.Span span = MONITOR.start(PerformanceMonitor.Phase.CONTINUITY, function)) {
+            String continuityError = Integrator.checkContinuity(function, job.lowerBound, job.upperBound);
+            if (!continuityError.isEmpty()) {
+                throw new IllegalArgumentException(continuityError);
+            }
+        }
+        try (PerformanceMonitor.Span span = MONITOR.start(PerformanceMonitor.Phase.INTEGRATION, function)) {
+            return integrate(job, function);
+        }
+    }
+
+    /**
+     * Runs the method of a job on its checked function
+     */
+    private static double[] integrate(Job job, BatchFunction function) {
+        double a = job.lowerBound;
+        double b = job.upperBound;
+
+        Quadrature.Rule rule = Quadrature.parse(job.method);
+        if (rule != null) {
+            return new double[]{Quadrature.integrate(rule, function, a, b, job.numPoints), Double.NaN};
+        }
+        if ("gauss-kronrod".equals(job.method)) {
+            GaussKronrod.Result result = GaussKronrod.integrate(function, a, b, job.numPoints);
+            return new double[]{result.getEstimate(), result.getError()};
+        }
+
+        double[] range;
+        if ("hit-or-miss".equals(job.method)) {
+            range = Integrator.getRange(function, a, b);
+            return interval(ParallelMonteCarlo.estimate(function, a, b, range[0], range[1], job.numPoints, job.seed, null));
+        }
+        if ("mean-value".equals(job.method)) {
+            return interval(ParallelMonteCarlo.estimateMeanValue(function, a, b, job.numPoints, job.seed, null));
+        }
+
+        // The other methods keep their points to place them
+        if (job.numPoints > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many points to store: " + job.numPoints);
+        }
+        int n = (int) job.numPoints;
+        switch (job.method) {
+            case "stratified":
+                range = Integrator.getRange(function, a, b);
+                int strata = StratifiedMonteCarlo.strataFor(n);
+                StratifiedEstimate stratified = StratifiedMonteCarlo.estimate(function, a, b, range,
+                        StratifiedMonteCarlo.plotPoints(function, a, b, range[0], range[1], n, strata, StratifiedMonteCarlo.Allocation.NEYMAN, job.seed),
+                        strata);
+                return new double[]{stratified.getEstimate(), stratified.getHalfWidth()};
+            case "latin-hypercube":
+                range = Integrator.getRange(function, a, b);
+                StratifiedEstimate latin = StratifiedMonteCarlo.estimateLatinHypercube(function, a, b, range,
+                        StratifiedMonteCarlo.latinHypercubePoints(a, b, range[0], range[1], n, job.seed));
+                return new double[]{latin.getEstimate(), latin.getHalfWidth()};
+            case "importance":
+                ImportanceSampling.Proposal proposal = ImportanceSampling.fitProposal(function, a, b);
+                return interval(ImportanceSampling.estimate(function, proposal, ImportanceSampling.plotPoints(proposal, n, job.seed)));
+            case "quasi":
+                range = Integrator.getRange(function, a, b);
+                return interval(QuasiMonteCarlo.estimate(function, a, b,
+                        QuasiMonteCarlo.plotPoints(a, b, range[0], range[1], n, QuasiMonteCarlo.Sequence.SOBOL, job.seed)));
+            default:
+                throw new IllegalArgumentException("Unknown method: " + job.method);
+        }
+    }
+
+    private static double[] interval(MonteCarloEstimator estimator) {
+        return new double[]{estimator.getEstimate(), estimator.getHalfWidth()};
+    }
+
+    static String toCsv(String[] fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String field = fields[i];
+            if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(field);
+            }
+        }
+        return line.toString();
+    }
+
+    static String toJson(String[] fields) {
+        String[] names = CSV_HEADER.split(",");
+        StringBuilder line = new StringBuilder("{");
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append('"').append(names[i]).append("\":");
+            boolean text = i == 1 || i == 4 || i == names.length - 1; // equation, method, status
+            if (text) {
+                appendJsonString(line, fields[i]);
+            } else if (fields[i].isEmpty() || "NaN".equals(fields[i]) || fields[i].contains("Infinity")) {
+                line.append("null");
+            } else {
+                line.append(fields[i]);
+            }
+        }
+        return line.append('}').toString();
+    }
+
+    private static void appendJsonString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,72 @@
+package com.mycompany.montecarlo;
+
+import java.util.SplittableRandom;
+
+/**
+ * The seeded blocks of ParallelMonteCarlo, the one place their points are
+ * drawn. Block b holds BLOCK_SIZE points drawn x then y from a SplittableRandom
+ * seeded with the b-th long of SplittableRandom(seed).
+ *
+ * As a PointSampler it walks the blocks in order, which is how plotPoints,
+ * SampleStream and SampleStore.write get the same points the parallel tasks
+ * draw one block at a time with draw. Mean-value blocks only draw x, with
+ * drawX.
+ */
+final class BlockSampler implements PointSampler {
+
+    private final SplittableRandom blockSeeds; // Gives the seed of every block in order, like ParallelMonteCarlo.blockSeeds
+    private SplittableRandom block; // Generator of the current block
+    private long drawn;
+
+    /**
+     * @param seed the seed of the run
+     */
+    BlockSampler(long seed) {
+        blockSeeds = new SplittableRandom(seed);
+    }
+
+    @Override
+    public void next(double[] point) {
+        if (drawn % ParallelMonteCarlo.BLOCK_SIZE == 0) {
+            block = new SplittableRandom(blockSeeds.nextLong());
+        }
+        drawn++;
+        point[0] = block.nextDouble();
+        point[1] = block.nextDouble();
+    }
+
+    /**
+     * Draws the next points of a block onto the bounding rectangle
+     *
+     * @param block the generator of the block
+     * @param count number of points
+     * @param leftBound minimum x value
+     * @param width width of the rectangle
+     * @param bottom minimum y value
+     * @param height height of the rectangle
+     * @param xs receives the x values
+     * @param ys receives the y values
+     */
+    static void draw(SplittableRandom block, int count, double leftBound, double width, double bottom, double height, double[] xs, double[] ys) {
+        for (int i = 0; i < count; i++) {
+            xs[i] = leftBound + block.nextDouble() * width;
+            ys[i] = bottom + block.nextDouble() * height;
+        }
+    }
+
+    /**
+     * Draws the next x values of a block for mean-value Monte Carlo, which
+     * takes one double per point instead of two
+     *
+     * @param block the generator of the block
+     * @param count number of points
+     * @param leftBound minimum x value
+     * @param width width of the interval
+     * @param xs receives the x values
+     */
+    static void drawX(SplittableRandom block, int count, double leftBound, double width, double[] xs) {
+        for (int i = 0; i < count; i++) {
+            xs[i] = leftBound + block.nextDouble() * width;
+        }
+    }
+}
@@ -0,0 +1,578 @@
+package com.mycompany.montecarlo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.operator.Operator;
+import net.objecthunter.exp4j.shuntingyard.ShuntingYard;
+import net.objecthunter.exp4j.tokenizer.FunctionToken;
+import net.objecthunter.exp4j.tokenizer.NumberToken;
+import net.objecthunter.exp4j.tokenizer.OperatorToken;
+import net.objecthunter.exp4j.tokenizer.Token;
+import net.objecthunter.exp4j.tokenizer.VariableToken;
+
+/**
+ * Turns a user equation f(x) into a generated class implementing
+ * BatchFunction.
+ *
+ * The equation is still parsed by exp4j (so syntax errors are reported exactly
+ * like ExpressionBuilder does), but instead of interpreting the postfix token
+ * stream on every call, the tokens are translated once into JVM bytecode. The
+ * JIT can then inline the whole function into the sampling loops. The
+ * generated class also gets its own batch loop, so evaluating an array of x
+ * values doesn't go through a virtual call per value. If a token can't be
+ * translated the interpreted Expression is used instead.
+ */
+public final class ExpressionCompiler {
+
+    private static final String VARIABLE = "x"; // The only variable the app allows
+
+    private static final AtomicInteger CLASS_COUNTER = new AtomicInteger(); // Gives every generated class a unique name
+
+    // Built-in exp4j constants, they are parsed as variables
+    private static final Map<String, Double> CONSTANTS = new HashMap<>();
+
+    // exp4j function name -> {owner class, method name, descriptor} of the static method doing the same math
+    private static final Map<String, String[]> FUNCTIONS = new HashMap<>();
+
+    static {
+        CONSTANTS.put("pi", Math.PI);
+        CONSTANTS.put("π", Math.PI);
+        CONSTANTS.put("e", Math.E);
+        CONSTANTS.put("φ", 1.61803398874d);
+
+        String math = "java/lang/Math";
+        String self = ExpressionCompiler.class.getName().replace('.', '/');
+        String unary = "(D)D";
+        for (String name : new String[]{"sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh",
+            "abs", "log", "log10", "log1p", "ceil", "floor", "sqrt", "cbrt", "exp", "expm1"}) {
+            FUNCTIONS.put(name, new String[]{math, name, unary});
+        }
+        FUNCTIONS.put("pow", new String[]{math, "pow", "(DD)D"});
+        FUNCTIONS.put("cot", new String[]{self, "cot", unary});
+        FUNCTIONS.put("log2", new String[]{self, "log2", unary});
+        FUNCTIONS.put("signum", new String[]{self, "signum", unary});
+    }
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Parses an equation in x and compiles it to bytecode.
+     *
+     * @param equation the equation typed by the user
+     * @return a thread-safe function computing the same values as the exp4j
+     * Expression built from the equation
+     * @throws IllegalArgumentException if exp4j can't parse the equation (same
+     * exceptions as ExpressionBuilder.build())
+     */
+    public static BatchFunction compile(String equation) {
+        Expression expression = new ExpressionBuilder(equation).variable(VARIABLE).build();
+
+        Set<String> variables = new HashSet<>(CONSTANTS.keySet());
+        variables.add(VARIABLE);
+        Token[] tokens = ShuntingYard.convertToRPN(equation, Collections.emptyMap(), Collections.emptyMap(), variables, true);
+
+        try {
+            return compile(tokens, equation);
+        } catch (UnsupportedOperationException | LinkageError e) {
+            // Something the generator doesn't know about, the interpreter can still handle it
+            return new InterpretedFunction(expression, equation);
+        }
+    }
+
+    /**
+     * Compiles a postfix (RPN) exp4j token stream to bytecode.
+     *
+     * @param tokens the tokens in reverse polish order
+     * @return the generated function
+     * @throws UnsupportedOperationException if a token can't be translated
+     */
+    public static BatchFunction compile(Token[] tokens) {
+        return compile(tokens, "");
+    }
+
+    private static BatchFunction compile(Token[] tokens, String equation) {
+        String className = "montecarlo.generated.Equation" + CLASS_COUNTER.incrementAndGet();
+        byte[] bytes = new ClassFile(className.replace('.', '/'), tokens).toBytes();
+
+        // Every equation gets its own loader so the class can be unloaded once the equation is replaced
+        GeneratedClassLoader loader = new GeneratedClassLoader(ExpressionCompiler.class.getClassLoader(), equation);
+        try {
+            return (BatchFunction) loader.define(className, bytes).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Could not instantiate generated class", e);
+        }
+    }
+
+    /**
+     * Wraps an exp4j Expression so it can be used where a DoubleUnaryOperator
+     * is expected. This is the slow path used when an equation can't be
+     * compiled. Each thread evaluates its own copy of the Expression because
+     * setVariable() mutates it.
+     *
+     * @param expression the expression to interpret
+     * @return a thread-safe function evaluating the expression
+     */
+    public static BatchFunction interpret(Expression expression) {
+        return new InterpretedFunction(expression, "");
+    }
+
+    /**
+     * @param generated the class of a function made by compile()
+     * @return the equation the class was generated from, empty for any other
+     * class
+     */
+    static String equationOf(Class<?> generated) {
+        ClassLoader loader = generated.getClassLoader();
+        return loader instanceof GeneratedClassLoader ? ((GeneratedClassLoader) loader).equation : "";
+    }
+
+    // Helpers called from generated code so results match exp4j exactly
+    public static double divide(double a, double b) {
+        if (b == 0d) {
+            throw new ArithmeticException("Division by zero!");
+        }
+        return a / b;
+    }
+
+    public static double modulo(double a, double b) {
+        if (b == 0d) {
+            throw new ArithmeticException("Division by zero!");
+        }
+        return a % b;
+    }
+
+    public static double cot(double x) {
+        double tan = Math.tan(x);
+        if (tan == 0d) {
+            throw new ArithmeticException("Division by zero in cotangent!");
+        }
+        return 1d / tan;
+    }
+
+    public static double log2(double x) {
+        return Math.log(x) / Math.log(2d);
+    }
+
+    public static double signum(double x) {
+        if (x > 0) {
+            return 1;
+        } else if (x < 0) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Slow path wrapping an exp4j Expression. A batch looks up the thread's
+     * copy of the Expression once instead of once per value.
+     */
+    private static final class InterpretedFunction implements BatchFunction {
+
+        private final ThreadLocal<Expression> local;
+        private final String equation;
+
+        InterpretedFunction(Expression expression, String equation) {
+            Expression template = new Expression(expression); // Private copy the caller can't change under us
+            local = ThreadLocal.withInitial(() -> new Expression(template));
+            this.equation = equation;
+        }
+
+        @Override
+        public double applyAsDouble(double x) {
+            return local.get().setVariable(VARIABLE, x).evaluate();
+        }
+
+        @Override
+        public void evaluate(double[] xs, double[] out, int from, int to) {
+            Expression expression = local.get();
+            for (int i = from; i < to; i++) {
+                out[i] = expression.setVariable(VARIABLE, xs[i]).evaluate();
+            }
+        }
+
+        @Override
+        public String getEquation() {
+            return equation;
+        }
+    }
+
+    /**
+     * Class loader used only to define one generated class
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        private final String equation; // Source of the class, for profiling events
+
+        GeneratedClassLoader(ClassLoader parent, String equation) {
+            super(parent);
+            this.equation = equation;
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Minimal class file writer. Produces a public final class with a no-arg
+     * constructor, applyAsDouble(double) and evaluate(double[], double[], int,
+     * int). The class file version is 49 so no stack map frames have to be
+     * written, even for the batch loop.
+     */
+    private static final class ClassFile {
+
+        private static final int MAX_CODE_LENGTH = 65535;
+
+        private static final int MAX_BRANCH_OFFSET = 32767; // Branch offsets are signed 16-bit
+
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final DataOutputStream poolOut = new DataOutputStream(pool);
+        private final Map<String, Integer> poolIndexes = new HashMap<>();
+        private int poolCount = 1; // Index 0 of the constant pool is never used
+
+        private final String className;
+        private final Token[] tokens;
+
+        ClassFile(String className, Token[] tokens) {
+            this.className = className;
+            this.tokens = tokens;
+        }
+
+        byte[] toBytes() {
+            try {
+                int thisClass = classRef(className);
+                int superClass = classRef("java/lang/Object");
+                int iface = classRef(BatchFunction.class.getName().replace('.', '/'));
+                int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+                int codeName = utf8("Code");
+
+                MethodBody apply = applyBody();
+                MethodBody evaluate = evaluateBody(); // null if the loop is too long, the default method is used then
+                int initName = utf8("<init>");
+                int initDesc = utf8("()V");
+                int applyName = utf8("applyAsDouble");
+                int applyDesc = utf8("(D)D");
+                int evaluateName = utf8("evaluate");
+                int evaluateDesc = utf8("([D[DII)V");
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0); // minor version
+                out.writeShort(49); // major version (Java 5)
+                out.writeShort(poolCount);
+                poolOut.flush();
+                pool.writeTo(out);
+                out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(iface);
+                out.writeShort(0); // no fields
+                out.writeShort(evaluate == null ? 2 : 3);
+
+                // public <init>() { super(); }
+                byte[] init = {0x2A, (byte) 0xB7, (byte) (objectInit >> 8), (byte) objectInit, (byte) 0xB1};
+                writeMethod(out, initName, initDesc, codeName, 1, 1, init);
+
+                // public double applyAsDouble(double x)
+                writeMethod(out, applyName, applyDesc, codeName, apply.maxStack, 3, apply.code);
+
+                // public void evaluate(double[] xs, double[] out, int from, int to)
+                if (evaluate != null) {
+                    writeMethod(out, evaluateName, evaluateDesc, codeName, evaluate.maxStack, 7, evaluate.code);
+                }
+
+                out.writeShort(0); // no class attributes
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new UnsupportedOperationException(e);
+            }
+        }
+
+        private void writeMethod(DataOutputStream out, int name, int desc, int codeName, int maxStack, int maxLocals, byte[] code) throws IOException {
+            out.writeShort(0x0001); // public
+            out.writeShort(name);
+            out.writeShort(desc);
+            out.writeShort(1); // one attribute: Code
+            out.writeShort(codeName);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // no exception table
+            out.writeShort(0); // no code attributes
+        }
+
+        /**
+         * Body of applyAsDouble: the expression with x in local 1
+         */
+        private MethodBody applyBody() throws IOException {
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            int maxDepth = expression(code, new byte[]{0x27}); // dload_1
+            code.write(0xAF); // dreturn
+
+            if (code.size() > MAX_CODE_LENGTH) {
+                throw new UnsupportedOperationException("Equation too long to compile");
+            }
+            return new MethodBody(code.toByteArray(), maxDepth * 2); // Every double takes two stack slots
+        }
+
+        /**
+         * Body of evaluate: for (; from < to; from++) { double x = xs[from];
+         * out[from] = f(x); } with the expression inlined in the loop. Locals
+         * are this, xs, out, from, to and x (slots 5 and 6).
+         *
+         * @return the body, or null if the loop is too long for 16-bit branch
+         * offsets
+         */
+        private MethodBody evaluateBody() throws IOException {
+            ByteArrayOutputStream expression = new ByteArrayOutputStream();
+            int maxDepth = expression(expression, new byte[]{0x18, 5}); // dload 5
+            int loopLength = 20 + expression.size(); // Offset of the final return
+            if (loopLength > MAX_BRANCH_OFFSET) {
+                return null;
+            }
+
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            code.write(0x1D); // 0: iload_3 (from)
+            code.write(0x15); // 1: iload 4 (to)
+            code.write(4);
+            code.write(0xA2); // 3: if_icmpge to the return
+            code.write((loopLength - 3) >> 8);
+            code.write(loopLength - 3);
+            code.write(0x2B); // 6: aload_1 (xs)
+            code.write(0x1D); // 7: iload_3
+            code.write(0x31); // 8: daload
+            code.write(0x39); // 9: dstore 5
+            code.write(5);
+            code.write(0x2C); // 11: aload_2 (out)
+            code.write(0x1D); // 12: iload_3
+            expression.writeTo(code); // 13: f(x)
+            code.write(0x52); // dastore
+            code.write(0x84); // iinc 3 1
+            code.write(3);
+            code.write(1);
+            int back = -(loopLength - 3); // goto the loop test at offset 0
+            code.write(0xA7);
+            code.write(back >> 8);
+            code.write(back);
+            code.write(0xB1); // return
+
+            return new MethodBody(code.toByteArray(), 2 + Math.max(1, maxDepth) * 2); // Array and index stay below f(x)
+        }
+
+        /**
+         * Translates the postfix tokens into stack machine instructions. The JVM
+         * operand stack plays the role of exp4j's evaluation stack.
+         *
+         * @param code receives the instructions
+         * @param loadX the instruction pushing x on the stack
+         * @return the maximum number of doubles on the stack
+         */
+        private int expression(ByteArrayOutputStream code, byte[] loadX) throws IOException {
+            int depth = 0; // Number of doubles currently on the stack
+            int maxDepth = 0;
+
+            for (Token token : tokens) {
+                switch (token.getType()) {
+                    case Token.TOKEN_NUMBER:
+                        pushConstant(code, ((NumberToken) token).getValue());
+                        depth++;
+                        break;
+                    case Token.TOKEN_VARIABLE:
+                        String name = ((VariableToken) token).getName();
+                        if (VARIABLE.equals(name)) {
+                            code.write(loadX);
+                        } else if (CONSTANTS.containsKey(name)) {
+                            pushConstant(code, CONSTANTS.get(name));
+                        } else {
+                            throw new UnsupportedOperationException("Unknown variable " + name);
+                        }
+                        depth++;
+                        break;
+                    case Token.TOKEN_OPERATOR:
+                        Operator operator = ((OperatorToken) token).getOperator();
+                        depth = operator(code, operator, depth);
+                        break;
+                    case Token.TOKEN_FUNCTION:
+                        Function function = ((FunctionToken) token).getFunction();
+                        String[] target = FUNCTIONS.get(function.getName());
+                        if (target == null || depth < function.getNumArguments()) {
+                            throw new UnsupportedOperationException("Unknown function " + function.getName());
+                        }
+                        invokeStatic(code, target[0], target[1], target[2]);
+                        depth -= function.getNumArguments() - 1;
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("Unexpected token type " + token.getType());
+                }
+                maxDepth = Math.max(maxDepth, depth);
+            }
+
+            if (depth != 1) {
+                throw new UnsupportedOperationException("Malformed token stream");
+            }
+            return maxDepth;
+        }
+
+        private int operator(ByteArrayOutputStream code, Operator operator, int depth) throws IOException {
+            if (depth < operator.getNumOperands()) {
+                throw new UnsupportedOperationException("Malformed token stream");
+            }
+
+            if (operator.getNumOperands() == 1) {
+                switch (operator.getSymbol()) {
+                    case "-":
+                        code.write(0x77); // dneg
+                        return depth;
+                    case "+":
+                        return depth; // Unary plus doesn't change anything
+                    default:
+                        throw new UnsupportedOperationException("Unknown operator " + operator.getSymbol());
+                }
+            }
+
+            switch (operator.getSymbol()) {
+                case "+":
+                    code.write(0x63); // dadd
+                    break;
+                case "-":
+                    code.write(0x67); // dsub
+                    break;
+                case "*":
+                    code.write(0x6B); // dmul
+                    break;
+                case "/":
+                    invokeStatic(code, ExpressionCompiler.class.getName().replace('.', '/'), "divide", "(DD)D");
+                    break;
+                case "%":
+                    invokeStatic(code, ExpressionCompiler.class.getName().replace('.', '/'), "modulo", "(DD)D");
+                    break;
+                case "^":
+                    invokeStatic(code, "java/lang/Math", "pow", "(DD)D");
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown operator " + operator.getSymbol());
+            }
+            return depth - 1;
+        }
+
+        private void pushConstant(ByteArrayOutputStream code, double value) throws IOException {
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                code.write(0x0E); // dconst_0
+            } else if (value == 1d) {
+                code.write(0x0F); // dconst_1
+            } else {
+                int index = doubleConstant(value);
+                code.write(0x14); // ldc2_w
+                code.write(index >> 8);
+                code.write(index);
+            }
+        }
+
+        private void invokeStatic(ByteArrayOutputStream code, String owner, String name, String descriptor) throws IOException {
+            int index = methodRef(owner, name, descriptor);
+            code.write(0xB8); // invokestatic
+            code.write(index >> 8);
+            code.write(index);
+        }
+
+        // Constant pool helpers. Entries are shared through poolIndexes
+        private int utf8(String value) throws IOException {
+            Integer existing = poolIndexes.get("U" + value);
+            if (existing != null) {
+                return existing;
+            }
+            poolOut.writeByte(1);
+            poolOut.writeUTF(value);
+            return register("U" + value, 1);
+        }
+
+        private int classRef(String internalName) throws IOException {
+            Integer existing = poolIndexes.get("C" + internalName);
+            if (existing != null) {
+                return existing;
+            }
+            int name = utf8(internalName);
+            poolOut.writeByte(7);
+            poolOut.writeShort(name);
+            return register("C" + internalName, 1);
+        }
+
+        private int methodRef(String owner, String name, String descriptor) throws IOException {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer existing = poolIndexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            poolOut.writeByte(10); // Methodref
+            poolOut.writeShort(ownerIndex);
+            poolOut.writeShort(nameAndType);
+            return register(key, 1);
+        }
+
+        private int nameAndType(String name, String descriptor) throws IOException {
+            Integer existing = poolIndexes.get("N" + name + descriptor);
+            if (existing != null) {
+                return existing;
+            }
+            int nameIndex = utf8(name);
+            int descIndex = utf8(descriptor);
+            poolOut.writeByte(12);
+            poolOut.writeShort(nameIndex);
+            poolOut.writeShort(descIndex);
+            return register("N" + name + descriptor, 1);
+        }
+
+        private int doubleConstant(double value) throws IOException {
+            String key = "D" + Double.doubleToRawLongBits(value);
+            Integer existing = poolIndexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            poolOut.writeByte(6);
+            poolOut.writeDouble(value);
+            return register(key, 2); // Doubles take two constant pool entries
+        }
+
+        private int register(String key, int slots) {
+            int index = poolCount;
+            poolIndexes.put(key, index);
+            poolCount += slots;
+            if (poolCount > 0xFFFF) {
+                throw new UnsupportedOperationException("Equation too long to compile");
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Bytecode and stack size of a generated method
+     */
+    private static final class MethodBody {
+
+        final byte[] code;
+        final int maxStack;
+
+        MethodBody(byte[] code, int maxStack) {
+            this.code = code;
+            this.maxStack = maxStack;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.mycompany.montecarlo;
+
+import java.util.PriorityQueue;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Adaptive integration with the 7-point Gauss / 15-point Kronrod pair.
+ *
+ * Every subinterval is integrated by both rules on the same 15 nodes, and
+ * their difference estimates its error (scaled as in QUADPACK's QK15). The
+ * subintervals wait in a priority queue ordered by that error, and the worst
+ * one is halved until the total error meets the tolerance or the evaluation
+ * budget runs out. Smooth parts of f are done after a few intervals, so the
+ * evaluations go where f is hard.
+ *
+ * The interval starts cut into a few equal pieces when the budget allows, so
+ * a narrow peak that falls between the 15 nodes of the whole interval isn't
+ * mistaken for a flat function.
+ */
+public final class GaussKronrod {
+
+    public static final double DEFAULT_ABSOLUTE_ERROR = 1e-10;
+
+    public static final double DEFAULT_RELATIVE_ERROR = 1e-10;
+
+    static final int NODES = 15; // Evaluations per subinterval
+
+    static final int INITIAL_INTERVALS = 16; // Pieces the interval starts in, if the budget is at least 4 times that
+
+    // Kronrod nodes on [-1, 1], from the center outwards (xgk in QK15). Even indexes are also the Gauss nodes
+    private static final double[] XGK = {
+        0.000000000000000000000000000000000e+00,
+        2.077849550078984676006894037732449e-01,
+        4.058451513773971669066064120769615e-01,
+        5.860872354676911302941448382587296e-01,
+        7.415311855993944398638647732807884e-01,
+        8.648644233597690727897127886409262e-01,
+        9.491079123427585245261896840478513e-01,
+        9.914553711208126392068546975263285e-01
+    };
+
+    // Kronrod weights of the nodes of XGK
+    private static final double[] WGK = {
+        2.094821410847278280129991748917143e-01,
+        2.044329400752988924141619992346491e-01,
+        1.903505780647854099132564024210137e-01,
+        1.690047266392679028265834265985503e-01,
+        1.406532597155259187451895905102379e-01,
+        1.047900103222501838398763225415180e-01,
+        6.309209262997855329070066318920429e-02,
+        2.293532201052922496373200805896959e-02
+    };
+
+    // Gauss weights of the center and of the even indexes of XGK
+    private static final double[] WG = {
+        4.179591836734693877551020408163265e-01,
+        3.818300505051189449503697754889751e-01,
+        2.797053914892766679014677714237796e-01,
+        1.294849661688696932706114326790820e-01
+    };
+
+    private GaussKronrod() {
+    }
+
+    /**
+     * Outcome of an adaptive integration
+     */
+    public static final class Result {
+
+        private final double estimate;
+        private final double error;
+        private final long evaluations;
+        private final int intervals;
+
+        Result(double estimate, double error, long evaluations, int intervals) {
+            this.estimate = estimate;
+            this.error = error;
+            this.evaluations = evaluations;
+            this.intervals = intervals;
+        }
+
+        public double getEstimate() {
+            return estimate;
+        }
+
+        /**
+         * @return the estimated absolute error, the sum of the error estimates
+         * of the subintervals
+         */
+        public double getError() {
+            return error;
+        }
+
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        public int getIntervals() {
+            return intervals;
+        }
+
+        /**
+         * @return whether the error estimate meets the tolerances
+         */
+        public boolean isPrecise(double absoluteError, double relativeError) {
+            return error <= Math.max(absoluteError, relativeError * Math.abs(estimate));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.12g ± %.2g (%d evaluations)", estimate, error, evaluations);
+        }
+    }
+
+    /**
+     * One subinterval with its Kronrod estimate and error
+     */
+    private static final class Interval {
+
+        final double left;
+        final double right;
+        final double estimate;
+        final double error;
+
+        Interval(double left, double right, double estimate, double error) {
+            this.left = left;
+            this.right = right;
+            this.estimate = estimate;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Integrates with the default tolerances
+     *
+     * @param function the function to integrate
+     * @param leftBound the left bound of integration
+     * @param rightBound the right bound of integration
+     * @param maxEvaluations evaluation budget, at least one interval is always
+     * evaluated
+     * @return the estimate, its error and the evaluations used
+     */
+    public static Result integrate(DoubleUnaryOperator function, double leftBound, double rightBound, long maxEvaluations) {
+        return integrate(function, leftBound, rightBound, DEFAULT_ABSOLUTE_ERROR, DEFAULT_RELATIVE_ERROR, maxEvaluations, null);
+    }
+
+    /**
+     * Integrates until the estimated error is below max(absoluteError,
+     * relativeError * |estimate|) or the budget runs out
+     *
+     * @param function the function to integrate
+     * @param leftBound the left bound of integration
+     * @param rightBound the right bound of integration
+     * @param absoluteError the absolute error target
+     * @param relativeError the relative error target
+     * @param maxEvaluations evaluation budget, at least one interval is always
+     * evaluated
+     * @param nodes receives every evaluated node as (x, f(x)), null if not
+     * needed
+     * @return the estimate, its error and the evaluations used
+     */
+    public static Result integrate(DoubleUnaryOperator function, double leftBound, double rightBound, double absoluteError,
+            double relativeError, long maxEvaluations, PointBuffer nodes) {
+        if (!(leftBound < rightBound)) {
+            throw new IllegalArgumentException("Lower bound must be strictly less than upper bound");
+        }
+        BatchFunction batch = BatchFunction.of(function);
+        double[] xs = new double[2 * NODES];
+        double[] values = new double[2 * NODES];
+        PriorityQueue<Interval> queue = new PriorityQueue<>((p, q) -> Double.compare(q.error, p.error)); // Worst error first
+
+        int pieces = (int) Math.max(1, Math.min(INITIAL_INTERVALS, maxEvaluations / (4 * NODES)));
+        long evaluations = 0;
+        double estimate = 0;
+        double error = 0;
+        for (int i = 0; i < pieces; i++) {
+            double left = i == 0 ? leftBound : leftBound + i * (rightBound - leftBound) / pieces;
+            double right = i == pieces - 1 ? rightBound : leftBound + (i + 1) * (rightBound - leftBound) / pieces;
+            Interval piece = evaluate(batch, left, right, xs, values, 0, nodes);
+            queue.add(piece);
+            evaluations += NODES;
+            estimate += piece.estimate;
+            error += piece.error;
+        }
+
+        while (error > Math.max(absoluteError, relativeError * Math.abs(estimate)) && evaluations + 2 * NODES <= maxEvaluations) {
+            Interval worst = queue.peek();
+            double middle = 0.5 * (worst.left + worst.right);
+            if (!(worst.left < middle && middle < worst.right) || !Double.isFinite(worst.error)) {
+                break; // Can't be split any further, more evaluations won't help
+            }
+            queue.poll();
+
+            // Both halves in one batch
+            fillNodes(worst.left, middle, xs, 0);
+            fillNodes(middle, worst.right, xs, NODES);
+            batch.evaluate(xs, values, 0, 2 * NODES);
+            Interval lower = rule(worst.left, middle, values, 0);
+            Interval upper = rule(middle, worst.right, values, NODES);
+            if (nodes != null) {
+                for (int i = 0; i < 2 * NODES; i++) {
+                    nodes.add(xs[i], values[i]);
+                }
+            }
+            queue.add(lower);
+            queue.add(upper);
+            evaluations += 2 * NODES;
+
+            estimate += lower.estimate + upper.estimate - worst.estimate;
+            error += lower.error + upper.error - worst.error;
+        }
+
+        // Sum again from scratch, the running totals drift after many updates
+        estimate = 0;
+        error = 0;
+        for (Interval interval : queue) {
+            estimate += interval.estimate;
+            error += interval.error;
+        }
+        return new Result(estimate, error, evaluations, queue.size());
+    }
+
+    private static Interval evaluate(BatchFunction function, double left, double right, double[] xs, double[] values, int offset,
+            PointBuffer nodes) {
+        fillNodes(left, right, xs, offset);
+        function.evaluate(xs, values, offset, offset + NODES);
+        if (nodes != null) {
+            for (int i = offset; i < offset + NODES; i++) {
+                nodes.add(xs[i], values[i]);
+            }
+        }
+        return rule(left, right, values, offset);
+    }
+
+    /**
+     * Writes the 15 nodes of an interval: the center, then the pairs of
+     * symmetric nodes from the center outwards
+     */
+    private static void fillNodes(double left, double right, double[] xs, int offset) {
+        double center = 0.5 * (left + right);
+        double halfLength = 0.5 * (right - left);
+        xs[offset] = center;
+        for (int j = 1; j < XGK.length; j++) {
+            double abscissa = halfLength * XGK[j];
+            xs[offset + 2 * j - 1] = center - abscissa;
+            xs[offset + 2 * j] = center + abscissa;
+        }
+    }
+
+    /**
+     * Applies both rules to the values at the nodes of fillNodes, with the
+     * error estimate of QUADPACK's QK15
+     */
+    private static Interval rule(double left, double right, double[] values, int offset) {
+        double halfLength = 0.5 * (right - left);
+        double fCenter = values[offset];
+        double kronrod = fCenter * WGK[0];
+        double gauss = fCenter * WG[0];
+        double absolute = Math.abs(kronrod);
+
+        for (int j = 1; j < XGK.length; j++) {
+            double pair = values[offset + 2 * j - 1] + values[offset + 2 * j];
+            kronrod += WGK[j] * pair;
+            absolute += WGK[j] * (Math.abs(values[offset + 2 * j - 1]) + Math.abs(values[offset + 2 * j]));
+            if (j % 2 == 0) {
+                gauss += WG[j / 2] * pair;
+            }
+        }
+
+        // Integral of |f - mean|, a scale for the error
+        double mean = kronrod * 0.5;
+        double spread = WGK[0] * Math.abs(fCenter - mean);
+        for (int j = 1; j < XGK.length; j++) {
+            spread += WGK[j] * (Math.abs(values[offset + 2 * j - 1] - mean) + Math.abs(values[offset + 2 * j] - mean));
+        }
+
+        double estimate = kronrod * halfLength;
+        spread *= Math.abs(halfLength);
+        absolute *= Math.abs(halfLength);
+        double error = Math.abs((kronrod - gauss) * halfLength);
+        if (spread != 0 && error != 0) {
+            error = spread * Math.min(1, Math.pow(200 * error / spread, 1.5));
+        }
+        if (absolute > Double.MIN_NORMAL / (50 * Math.ulp(1.0))) {
+            error = Math.max(50 * Math.ulp(1.0) * absolute, error); // Rounding error floor
+        }
+        return new Interval(left, right, estimate, error);
+    }
+}
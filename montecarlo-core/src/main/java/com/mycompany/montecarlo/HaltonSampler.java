@@ -0,0 +1,71 @@
+package com.mycompany.montecarlo;
+
+import java.util.SplittableRandom;
+
+/**
+ * Two dimensional scrambled Halton sequence (bases 2 and 3).
+ *
+ * Every digit position of the radical inverse gets its own random permutation
+ * of the digits (random digit scrambling). Trailing zero digits are scrambled
+ * too, which makes each point uniformly distributed while keeping the low
+ * discrepancy of the set.
+ */
+public final class HaltonSampler implements PointSampler {
+
+    private static final int[] BASES = {2, 3};
+
+    private static final int[] DIGITS = {53, 34}; // Digits needed to reach double precision in each base
+
+    private final int[][][] permutations = new int[2][][]; // [dimension][digit position][digit]
+    private long index; // Index of the next point
+
+    /**
+     * @param seed the scrambling seed
+     */
+    public HaltonSampler(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        for (int dim = 0; dim < 2; dim++) {
+            int base = BASES[dim];
+            permutations[dim] = new int[DIGITS[dim]][];
+            for (int d = 0; d < DIGITS[dim]; d++) {
+                int[] permutation = new int[base];
+                for (int i = 0; i < base; i++) {
+                    permutation[i] = i;
+                }
+                for (int i = base - 1; i > 0; i--) { // Fisher-Yates shuffle
+                    int j = random.nextInt(i + 1);
+                    int swap = permutation[i];
+                    permutation[i] = permutation[j];
+                    permutation[j] = swap;
+                }
+                permutations[dim][d] = permutation;
+            }
+        }
+    }
+
+    @Override
+    public void next(double[] point) {
+        point[0] = radicalInverse(0, index);
+        point[1] = radicalInverse(1, index);
+        index++;
+    }
+
+    /**
+     * Scrambled radical inverse of n in the base of the dimension
+     */
+    private double radicalInverse(int dim, long n) {
+        int base = BASES[dim];
+        int[][] perms = permutations[dim];
+        double factor = 1.0 / base;
+        double result = 0;
+
+        for (int d = 0; d < perms.length; d++) {
+            int digit = (int) (n % base);
+            n /= base;
+            result += perms[d][digit] * factor;
+            factor /= base;
+        }
+        return Math.min(result, Math.nextDown(1.0)); // Rounding must never produce exactly 1
+    }
+}
@@ -0,0 +1,237 @@
+package com.mycompany.montecarlo;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Importance sampling Monte Carlo with an automatically fitted proposal.
+ *
+ * A cheap deterministic pilot pass builds a piecewise constant density roughly
+ * proportional to |f|: the interval starts as a uniform grid, and the cells in
+ * which |f| varies the most are split again and again until the pilot budget
+ * is spent. The main run draws x from that density and averages f(x) / q(x),
+ * which is unbiased for the integral. Peaked functions get most of their
+ * points where the area actually is. The gain is largest when f keeps one
+ * sign; positive and negative lobes that cancel still leave some variance.
+ *
+ * A small uniform component is mixed into the density so q is never 0 where f
+ * isn't, which keeps the estimator unbiased even if the pilot missed a feature.
+ */
+public final class ImportanceSampling {
+
+    static final int PILOT_GRID = 1024; // Cells of the initial pilot grid
+
+    static final int PILOT_SPLITS = 1024; // Number of cells split during refinement (one evaluation each)
+
+    static final double DEFENSIVE_MIX = 0.05; // Share of the uniform density mixed into the proposal
+
+    private ImportanceSampling() {
+    }
+
+    /**
+     * Piecewise constant probability density on [leftBound, rightBound]
+     */
+    public static final class Proposal {
+
+        private final double[] lefts; // Left edge of every cell, sorted
+        private final double[] widths; // Width of every cell
+        private final double[] heights; // Unnormalized density of every cell
+        private final double[] cumulative; // Unnormalized mass up to the end of every cell
+        private final double total; // Total unnormalized mass
+        private final int pilotEvaluations; // Evaluations of f spent fitting the proposal
+
+        Proposal(double[] lefts, double[] widths, double[] heights, int pilotEvaluations) {
+            this.lefts = lefts;
+            this.widths = widths;
+            this.heights = heights;
+            this.cumulative = new double[heights.length];
+            double mass = 0;
+            for (int i = 0; i < heights.length; i++) {
+                mass += heights[i] * widths[i];
+                cumulative[i] = mass;
+            }
+            this.total = mass;
+            this.pilotEvaluations = pilotEvaluations;
+        }
+
+        /**
+         * Draws a point from the density
+         *
+         * @param random the random source
+         * @return the x of the point
+         */
+        public double sample(SplittableRandom random) {
+            double target = random.nextDouble() * total;
+            int cell = Arrays.binarySearch(cumulative, target);
+            cell = Math.min(cell < 0 ? -cell - 1 : cell + 1, heights.length - 1);
+            return lefts[cell] + random.nextDouble() * widths[cell];
+        }
+
+        /**
+         * @param x a point of the interval
+         * @return the normalized density at x
+         */
+        public double density(double x) {
+            int cell = Arrays.binarySearch(lefts, x);
+            cell = cell < 0 ? Math.max(0, -cell - 2) : cell;
+            return heights[cell] / total;
+        }
+
+        public int getCells() {
+            return heights.length;
+        }
+
+        public int getPilotEvaluations() {
+            return pilotEvaluations;
+        }
+    }
+
+    /**
+     * Runs the pilot pass and fits a proposal roughly proportional to |f|
+     *
+     * @param function the function to integrate
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @return the fitted proposal density
+     */
+    public static Proposal fitProposal(DoubleUnaryOperator function, double leftBound, double rightBound) {
+        // A cell is {left, right, |f(left)|, |f(middle)|, |f(right)|}, split first where |f| varies the most
+        PriorityQueue<double[]> cells = new PriorityQueue<>((a, b) -> Double.compare(variation(b), variation(a)));
+        double dx = (rightBound - leftBound) / PILOT_GRID;
+        double previous = magnitude(function, leftBound);
+        int evaluations = 1;
+
+        for (int i = 0; i < PILOT_GRID; i++) {
+            double left = leftBound + i * dx;
+            double right = (i == PILOT_GRID - 1) ? rightBound : left + dx;
+            double middle = magnitude(function, (left + right) / 2);
+            double end = magnitude(function, right);
+            evaluations += 2;
+            cells.add(new double[]{left, right, previous, middle, end});
+            previous = end;
+        }
+
+        // Refinement: split the cells where a constant density fits |f| the worst
+        for (int i = 0; i < PILOT_SPLITS && variation(cells.peek()) > 0; i++) {
+            double[] cell = cells.poll();
+            double middleX = (cell[0] + cell[1]) / 2;
+            double leftMiddle = magnitude(function, (cell[0] + middleX) / 2);
+            double rightMiddle = magnitude(function, (middleX + cell[1]) / 2);
+            evaluations += 2;
+            cells.add(new double[]{cell[0], middleX, cell[2], leftMiddle, cell[3]});
+            cells.add(new double[]{middleX, cell[1], cell[3], rightMiddle, cell[4]});
+        }
+
+        double[][] sorted = cells.toArray(new double[0][]);
+        Arrays.sort(sorted, (a, b) -> Double.compare(a[0], b[0]));
+
+        double[] lefts = new double[sorted.length];
+        double[] widths = new double[sorted.length];
+        double[] heights = new double[sorted.length];
+        double mass = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            lefts[i] = sorted[i][0];
+            widths[i] = sorted[i][1] - sorted[i][0];
+            heights[i] = Math.max(sorted[i][2], Math.max(sorted[i][3], sorted[i][4]));
+            mass += heights[i] * widths[i];
+        }
+
+        // Defensive mixture with the uniform density (also covers f = 0 everywhere)
+        double uniform = (mass > 0 && Double.isFinite(mass)) ? DEFENSIVE_MIX * mass / (rightBound - leftBound) : 1;
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = Double.isFinite(mass) ? heights[i] + uniform : uniform;
+        }
+
+        return new Proposal(lefts, widths, heights, evaluations);
+    }
+
+    /**
+     * How badly a constant density fits |f| on a cell
+     */
+    private static double variation(double[] cell) {
+        double max = Math.max(cell[2], Math.max(cell[3], cell[4]));
+        double min = Math.min(cell[2], Math.min(cell[3], cell[4]));
+        return (cell[1] - cell[0]) * (max - min);
+    }
+
+    private static double magnitude(DoubleUnaryOperator function, double x) {
+        double value = Math.abs(function.applyAsDouble(x));
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    /**
+     * Draws points from the proposal. Their y is 0 until estimate() sets it to
+     * f(x), so the display shows how densely each region was sampled.
+     *
+     * @param proposal the fitted proposal
+     * @param numPoints the number of points
+     * @param seed the random seed
+     * @return the points, with room for inside/outside flags
+     */
+    public static PointBuffer plotPoints(Proposal proposal, int numPoints, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        PointBuffer points = new PointBuffer(numPoints, true);
+        for (int i = 0; i < numPoints; i++) {
+            points.add(proposal.sample(random), 0);
+        }
+        return points;
+    }
+
+    /**
+     * Estimates the net area from points drawn from the proposal
+     *
+     * @param function the function to integrate
+     * @param proposal the proposal the points were drawn from
+     * @param points the points from plotPoints, their y is set to f(x)
+     * @return the estimator of the weighted samples f(x) / q(x)
+     */
+    public static MonteCarloEstimator estimate(DoubleUnaryOperator function, Proposal proposal, PointBuffer points) {
+        MonteCarloEstimator estimator = new MonteCarloEstimator();
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+
+        BatchFunction.of(function).evaluate(xs, ys, 0, points.size()); // y = f(x) for every point
+        for (int i = 0; i < points.size(); i++) {
+            estimator.add(ys[i] / proposal.density(xs[i]));
+            points.setInside(i, true);
+        }
+        return estimator;
+    }
+
+    /**
+     * Importance sampling that draws points until the requested error is
+     * reached
+     *
+     * @param function the function to integrate
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param absoluteError target half width of the 95% confidence interval, 0
+     * or less to ignore
+     * @param relativeError target half width relative to the estimate, 0 or
+     * less to ignore
+     * @param timeBudgetMillis stop after this many milliseconds, 0 or less for
+     * no limit
+     * @param maxSamples never draw more than this many points
+     * @param seed the random seed
+     * @return the estimator, holding the estimate and its error
+     */
+    public static MonteCarloEstimator integrateUntil(DoubleUnaryOperator function, double leftBound, double rightBound,
+            double absoluteError, double relativeError, long timeBudgetMillis, long maxSamples, long seed) {
+        Proposal proposal = fitProposal(function, leftBound, rightBound);
+        SplittableRandom random = new SplittableRandom(seed);
+        BatchFunction batch = BatchFunction.of(function);
+        double[] xs = new double[MonteCarloEstimator.CHECK_INTERVAL];
+
+        return new MonteCarloEstimator().run((samples, length) -> {
+            for (int i = 0; i < length; i++) {
+                xs[i] = proposal.sample(random);
+            }
+            batch.evaluate(xs, samples, 0, length);
+            for (int i = 0; i < length; i++) {
+                samples[i] /= proposal.density(xs[i]);
+            }
+        }, absoluteError, relativeError, timeBudgetMillis, maxSamples);
+    }
+}
@@ -0,0 +1,656 @@
+package com.mycompany.montecarlo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongConsumer;
+import net.objecthunter.exp4j.Expression;
+
+/**
+ * The integration engine: hit-or-miss and mean-value Monte Carlo, Riemann
+ * sums and quadrature rules, the range search and the sample points, as
+ * static methods that don't need JavaFX. The UI, the batch mode and any
+ * other embedding call the same code.
+ */
+public final class Integrator {
+
+    static final int RANGE_GRID_CELLS = 2048; // Coarse grid used by getRange, independent of the range width
+
+    static final int RANGE_REFINED_CANDIDATES = 16; // How many grid extrema getRange refines
+
+    static final double RANGE_TOLERANCE = 1e-9; // Default x tolerance of the golden-section refinement
+
+    private Integrator() {
+    }
+
+    /**
+     * Interpreted version of integrateMonteCarlo, kept for callers that already hold an exp4j
+     * Expression. Prefer passing a function compiled by ExpressionCompiler.
+     */
+    public static double integrateMonteCarlo(Expression function, double leftBound, double rightBound, PointBuffer randPoints) {
+        return integrateMonteCarlo(ExpressionCompiler.interpret(function), leftBound, rightBound, randPoints);
+    }
+
+    /**
+     * Calculates the net area under a curve for a function under a specified
+     * range. Uses the monte carlo method to estimate the area.
+     *
+     * @param function the function which must be integrated, usually compiled
+     * by ExpressionCompiler
+     * @param leftBound left bound of integration
+     * @param rightBound right bound for integration
+     * @param randPoints random points which were already generated. Used to
+     * integrate with this method. If the buffer tracks inside/outside flags
+     * they are filled in so the display doesn't have to evaluate f again
+     * @return returns an estimate of the area under the curve between the 2
+     * bounds
+     */
+    public static double integrateMonteCarlo(DoubleUnaryOperator function, double leftBound, double rightBound, PointBuffer randPoints) {
+        return estimateMonteCarlo(function, leftBound, rightBound, randPoints).getEstimate();
+    }
+
+    /**
+     * Same as integrateMonteCarlo but returns the estimator, which also holds
+     * the standard error and the 95% confidence interval of the estimate.
+     *
+     * @param function the function which must be integrated
+     * @param leftBound left bound of integration
+     * @param rightBound right bound for integration
+     * @param randPoints random points which were already generated
+     * @return the estimator after consuming every point
+     */
+    public static MonteCarloEstimator estimateMonteCarlo(DoubleUnaryOperator function, double leftBound, double rightBound, PointBuffer randPoints) {
+        ProfilingEvents.Integration event = new ProfilingEvents.Integration();
+        BatchFunction batch = event.begin(function);
+
+        double[] range = getRange(batch, leftBound, rightBound);
+        double rectArea = rectangleArea(leftBound, rightBound, range[0], range[1]);
+
+        BitSet inside = randPoints.tracksInside() ? new BitSet(randPoints.size()) : null;
+        MonteCarloEstimator estimator = estimateMonteCarlo(batch, rectArea, randPoints, 0, randPoints.size(), inside);
+        if (inside != null) {
+            randPoints.setInside(0, inside);
+        }
+
+        event.end(leftBound, rightBound, "Hit-or-miss Monte Carlo", randPoints.size());
+        return estimator;
+    }
+
+    /**
+     * Replays the points of a sample store through hit-or-miss Monte Carlo.
+     * The points are read from the mapped file, so the store can be much
+     * larger than the heap.
+     *
+     * @param function the function which must be integrated, must be
+     * thread-safe
+     * @param samples the stored points, with the bounds and range they were
+     * thrown in
+     * @return an estimate of the area under the curve between the bounds of
+     * the store
+     */
+    public static double integrateMonteCarlo(DoubleUnaryOperator function, SampleStore samples) {
+        return estimateMonteCarlo(function, samples).getEstimate();
+    }
+
+    /**
+     * Same as integrateMonteCarlo(function, samples) but returns the
+     * estimator
+     *
+     * @param function the function which must be integrated
+     * @param samples the stored points
+     * @return the estimator of every stored point
+     */
+    public static MonteCarloEstimator estimateMonteCarlo(DoubleUnaryOperator function, SampleStore samples) {
+        ProfilingEvents.Integration event = new ProfilingEvents.Integration();
+        MonteCarloEstimator estimator = samples.estimateMonteCarlo(event.begin(function));
+        event.end(samples.getLeftBound(), samples.getRightBound(), "Hit-or-miss Monte Carlo (replayed)", samples.size());
+        return estimator;
+    }
+
+    /**
+     * Hit-or-miss estimate from a range of the points of a buffer. The buffer
+     * is only read, so disjoint ranges can be estimated in parallel and their
+     * estimators combined.
+     *
+     * @param function the function which must be integrated
+     * @param rectArea area of the bounding rectangle the points were thrown in
+     * @param randPoints the points
+     * @param from index of the first point to use
+     * @param to index after the last point to use
+     * @param inside receives at index i whether point from + i is inside the
+     * area, null if not needed
+     * @return the estimator of the points in the range
+     */
+    public static MonteCarloEstimator estimateMonteCarlo(BatchFunction function, double rectArea, PointBuffer randPoints, int from, int to, BitSet inside) {
+        // Every point is an estimate of the area on its own: +rectArea, -rectArea or 0
+        MonteCarloEstimator estimator = new MonteCarloEstimator();
+        
+        double[] xs = randPoints.xs();
+        double[] ys = randPoints.ys();
+        double[] values = new double[BatchFunction.CHUNK_SIZE];
+
+        for (int start = from; start < to; start += values.length) {
+            int length = Math.min(values.length, to - start);
+            System.arraycopy(xs, start, values, 0, length);
+            function.evaluate(values, values, 0, length); // f(x) replaces x in place
+
+            for (int j = 0; j < length; j++) {
+                int hit = hit(values[j], ys[start + j]);
+                estimator.add(hit * rectArea);
+                if (inside != null && hit != 0) {
+                    inside.set(start - from + j);
+                }
+            }
+        }
+
+        return estimator;
+    }
+
+    /**
+     * Hit-or-miss Monte Carlo that draws points until the requested error is
+     * reached instead of using a fixed set of points. Points are generated on
+     * the fly and never stored.
+     *
+     * @param function the function which must be integrated
+     * @param leftBound left bound of integration
+     * @param rightBound right bound for integration
+     * @param absoluteError target half width of the 95% confidence interval, 0
+     * or less to ignore
+     * @param relativeError target half width relative to the estimate, 0 or
+     * less to ignore
+     * @param timeBudgetMillis stop after this many milliseconds, 0 or less for
+     * no limit
+     * @param maxSamples never draw more than this many points
+     * @param seed the random seed
+     * @return the estimator, holding the estimate and its error
+     */
+    public static MonteCarloEstimator integrateMonteCarloUntil(DoubleUnaryOperator function, double leftBound, double rightBound,
+            double absoluteError, double relativeError, long timeBudgetMillis, long maxSamples, long seed) {
+        double[] range = getRange(function, leftBound, rightBound);
+        double rectArea = rectangleArea(leftBound, rightBound, range[0], range[1]);
+        double bottom = clampMin(range[0], range[1]);
+        double height = clampMax(range[0], range[1]) - bottom;
+        double width = rightBound - leftBound;
+        SplittableRandom random = new SplittableRandom(seed);
+        BatchFunction batch = BatchFunction.of(function);
+        double[] ys = new double[MonteCarloEstimator.CHECK_INTERVAL];
+
+        return new MonteCarloEstimator().run((samples, length) -> {
+            for (int i = 0; i < length; i++) {
+                samples[i] = leftBound + random.nextDouble() * width;
+                ys[i] = bottom + random.nextDouble() * height;
+            }
+            batch.evaluate(samples, samples, 0, length);
+            for (int i = 0; i < length; i++) {
+                samples[i] = hit(samples[i], ys[i]) * rectArea;
+            }
+        }, absoluteError, relativeError, timeBudgetMillis, maxSamples);
+    }
+
+    /**
+     * Mean-value (crude) Monte Carlo: the area is (b - a) times the average of
+     * f at uniformly distributed x values. It needs one random number and one
+     * evaluation per point, no bounding box, and always has a lower variance
+     * than hit-or-miss.
+     *
+     * Only the x coordinates of the points are used. Their y coordinates are
+     * replaced by f(x) and every point is marked inside, so the display shows
+     * where the function was sampled.
+     *
+     * @param function the function which must be integrated
+     * @param leftBound left bound of integration
+     * @param rightBound right bound for integration
+     * @param randPoints points with x uniform between the bounds, e.g. from
+     * plotPoints with min = max = 0
+     * @return the estimator after consuming every point
+     */
+    public static MonteCarloEstimator estimateMeanValue(DoubleUnaryOperator function, double leftBound, double rightBound, PointBuffer randPoints) {
+        MonteCarloEstimator estimator = new MonteCarloEstimator();
+        double width = rightBound - leftBound;
+        double[] xs = randPoints.xs();
+        double[] ys = randPoints.ys();
+        int size = randPoints.size();
+
+        BatchFunction.of(function).evaluate(xs, ys, 0, size); // y = f(x) for every point
+        for (int i = 0; i < size; i++) {
+            estimator.add(width * ys[i]);
+            randPoints.setInside(i, true);
+        }
+
+        return estimator;
+    }
+
+    /**
+     * Mean-value Monte Carlo that draws x values until the requested error is
+     * reached. Nothing is stored and no bounding box is needed.
+     *
+     * @param function the function which must be integrated
+     * @param leftBound left bound of integration
+     * @param rightBound right bound for integration
+     * @param absoluteError target half width of the 95% confidence interval, 0
+     * or less to ignore
+     * @param relativeError target half width relative to the estimate, 0 or
+     * less to ignore
+     * @param timeBudgetMillis stop after this many milliseconds, 0 or less for
+     * no limit
+     * @param maxSamples never evaluate f more than this many times
+     * @param seed the random seed
+     * @return the estimator, holding the estimate and its error
+     */
+    public static MonteCarloEstimator integrateMeanValueUntil(DoubleUnaryOperator function, double leftBound, double rightBound,
+            double absoluteError, double relativeError, long timeBudgetMillis, long maxSamples, long seed) {
+        double width = rightBound - leftBound;
+        SplittableRandom random = new SplittableRandom(seed);
+        BatchFunction batch = BatchFunction.of(function);
+
+        return new MonteCarloEstimator().run((samples, length) -> {
+            for (int i = 0; i < length; i++) {
+                samples[i] = leftBound + random.nextDouble() * width;
+            }
+            batch.evaluate(samples, samples, 0, length);
+            for (int i = 0; i < length; i++) {
+                samples[i] *= width;
+            }
+        }, absoluteError, relativeError, timeBudgetMillis, maxSamples);
+    }
+
+    /**
+     * Classifies one hit-or-miss point
+     *
+     * @param fAtPoint the value of the function at the x of the point
+     * @param y the y of the point
+     * @return 1 if the point is between the x-axis and a positive part of the
+     * curve, -1 for a negative part, 0 if it's outside the area
+     */
+    static int hit(double fAtPoint, double y) {
+        if (fAtPoint >= 0 && fAtPoint >= y && y >= 0) {
+            return 1;
+        } else if (fAtPoint <= 0 && fAtPoint <= y && y <= 0) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Area of the rectangle points are thrown in. It always touches the x-axis
+     * so both the positive and the negative part of the curve fit in it.
+     *
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param minValue minimum of the function on the range
+     * @param maxValue maximum of the function on the range
+     * @return the area of the bounding rectangle
+     */
+    static double rectangleArea(double leftBound, double rightBound, double minValue, double maxValue) {
+        // Function is non-negative on the interval: [0, max]
+        // Function is non-positive on the interval: [min, 0]
+        // Function crosses the x-axis: the full min-to-max range
+        return (rightBound - leftBound) * (clampMax(minValue, maxValue) - clampMin(minValue, maxValue));
+    }
+
+    /**
+     * @return the bottom of the bounding rectangle, never above 0
+     */
+    static double clampMin(double min, double max) {
+        return min >= 0 ? 0 : min;
+    }
+
+    /**
+     * @return the top of the bounding rectangle, never below 0
+     */
+    static double clampMax(double min, double max) {
+        return (min < 0 && max <= 0) ? 0 : max;
+    }
+
+    /**
+     * Interpreted version of getMin, kept for callers that already hold an exp4j
+     * Expression. Prefer passing a function compiled by ExpressionCompiler.
+     */
+    public static double getMin(Expression function, double leftBound, double rightBound) {
+        return getMin(ExpressionCompiler.interpret(function), leftBound, rightBound);
+    }
+
+    /**
+     * Find the minimum value (y value) of a function on the given range
+     *
+     * @param function the function
+     * @param leftBound the left bound of the range
+     * @param rightBound the right bound of the range
+     * @return the smallest y value found on the range between the 2 bounds
+     */
+    public static double getMin(DoubleUnaryOperator function, double leftBound, double rightBound) {
+        return getRange(function, leftBound, rightBound)[0];
+    }
+
+    /**
+     * Interpreted version of getMax, kept for callers that already hold an exp4j
+     * Expression. Prefer passing a function compiled by ExpressionCompiler.
+     */
+    public static double getMax(Expression function, double leftBound, double rightBound) {
+        return getMax(ExpressionCompiler.interpret(function), leftBound, rightBound);
+    }
+
+    /**
+     * Finds the maximum y value of a function on a given range
+     *
+     * @param function the function
+     * @param leftBound the left bound of the range
+     * @param rightBound the right bound of the range
+     * @return the biggest y value found on the range between the 2 bounds
+     */
+    public static double getMax(DoubleUnaryOperator function, double leftBound, double rightBound) {
+        return getRange(function, leftBound, rightBound)[1];
+    }
+
+    /**
+     * Finds both the minimum and the maximum of a function on a given range
+     * with the default x tolerance
+     *
+     * @param function the function
+     * @param leftBound the left bound of the range
+     * @param rightBound the right bound of the range
+     * @return {min, max} of the function between the 2 bounds
+     */
+    public static double[] getRange(DoubleUnaryOperator function, double leftBound, double rightBound) {
+        return getRange(function, leftBound, rightBound, RANGE_TOLERANCE);
+    }
+
+    /**
+     * Finds both the minimum and the maximum of a function on a given range.
+     *
+     * The function is sampled once on a fixed coarse grid, whatever the width
+     * of the range. The grid points that are local minima or maxima are then
+     * refined with a golden-section search inside their neighbouring cells, so
+     * the cost doesn't grow with the width of the range.
+     *
+     * @param function the function
+     * @param leftBound the left bound of the range
+     * @param rightBound the right bound of the range
+     * @param tolerance how close (in x) the refined extrema are located
+     * @return {min, max} of the function between the 2 bounds. NaN values are
+     * ignored like the old scans did
+     */
+    public static double[] getRange(DoubleUnaryOperator function, double leftBound, double rightBound, double tolerance) {
+        ProfilingEvents.RangeSearch event = new ProfilingEvents.RangeSearch();
+        BatchFunction batch = event.begin(function);
+
+        int cells = RANGE_GRID_CELLS;
+        double dx = (rightBound - leftBound) / cells;
+        double[] values = new double[cells + 1];
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        // Single pass on the coarse grid for both extrema, the grid x values are replaced by f(x)
+        for (int i = 0; i <= cells; i++) {
+            values[i] = (i == cells) ? rightBound : leftBound + i * dx;
+        }
+        batch.evaluate(values, values, 0, values.length);
+
+        for (int i = 0; i <= cells; i++) {
+            if (values[i] < min) {
+                min = values[i];
+            }
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+
+        // Refine the best local minima and maxima of the grid
+        for (int i : extremaCandidates(values, false)) {
+            double lo = leftBound + Math.max(0, i - 1) * dx;
+            double hi = (i + 1 >= cells) ? rightBound : leftBound + (i + 1) * dx;
+            min = Math.min(min, goldenSection(batch, lo, hi, tolerance, false));
+        }
+        for (int i : extremaCandidates(values, true)) {
+            double lo = leftBound + Math.max(0, i - 1) * dx;
+            double hi = (i + 1 >= cells) ? rightBound : leftBound + (i + 1) * dx;
+            max = Math.max(max, goldenSection(batch, lo, hi, tolerance, true));
+        }
+
+        event.end(leftBound, rightBound, "Grid and golden section", cells + 1);
+        return new double[]{min, max};
+    }
+
+    /**
+     * Indexes of the grid points that are local extrema, keeping only the
+     * RANGE_REFINED_CANDIDATES best ones
+     *
+     * @param values the function values on the grid
+     * @param maximum true to look for maxima, false for minima
+     * @return indexes of the grid points worth refining
+     */
+    private static int[] extremaCandidates(double[] values, boolean maximum) {
+        double sign = maximum ? -1 : 1; // Maxima of f are minima of -f
+        ArrayList<Integer> candidates = new ArrayList<>();
+
+        for (int i = 0; i < values.length; i++) {
+            double value = sign * values[i];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            boolean belowLeft = i == 0 || !(sign * values[i - 1] < value);
+            boolean belowRight = i == values.length - 1 || !(sign * values[i + 1] < value);
+            if (belowLeft && belowRight) {
+                candidates.add(i);
+            }
+        }
+
+        candidates.sort((a, b) -> Double.compare(sign * values[a], sign * values[b]));
+        int count = Math.min(candidates.size(), RANGE_REFINED_CANDIDATES);
+        int[] best = new int[count];
+        for (int i = 0; i < count; i++) {
+            best[i] = candidates.get(i);
+        }
+        return best;
+    }
+
+    /**
+     * Golden-section search for an extremum of f on [lo, hi]
+     *
+     * @param function the function
+     * @param lo left end of the bracket
+     * @param hi right end of the bracket
+     * @param tolerance stop once the bracket is narrower than this
+     * @param maximum true to search for a maximum, false for a minimum
+     * @return the best value of f seen during the search (NaN values are
+     * skipped)
+     */
+    private static double goldenSection(DoubleUnaryOperator function, double lo, double hi, double tolerance, boolean maximum) {
+        double sign = maximum ? -1 : 1;
+        double invPhi = (Math.sqrt(5) - 1) / 2;
+
+        double c = hi - invPhi * (hi - lo);
+        double d = lo + invPhi * (hi - lo);
+        double fc = sign * function.applyAsDouble(c);
+        double fd = sign * function.applyAsDouble(d);
+        double best = Math.min(nanToInfinity(fc), nanToInfinity(fd));
+
+        while (hi - lo > tolerance && c < d) {
+            if (!(fd < fc)) {
+                hi = d;
+                d = c;
+                fd = fc;
+                c = hi - invPhi * (hi - lo);
+                fc = sign * function.applyAsDouble(c);
+                best = Math.min(best, nanToInfinity(fc));
+            } else {
+                lo = c;
+                c = d;
+                fc = fd;
+                d = lo + invPhi * (hi - lo);
+                fd = sign * function.applyAsDouble(d);
+                best = Math.min(best, nanToInfinity(fd));
+            }
+        }
+
+        return sign * best;
+    }
+
+    private static double nanToInfinity(double value) {
+        return Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+    }
+
+    /**
+     * Generates random points in a rectangle area.
+     *
+     * @param leftBound minimum x value for any generated point
+     * @param rightBound maximum x value for any generated point
+     * @param min minimum y value for any generated point. Its the minimum value
+     * of the function on the range of integration.
+     * @param max maximum y value for any generated point. Its the maximum value
+     * of the function on the range of integration.
+     * @param numPoints the number of points the user wants to generate
+     * @return returns a PointBuffer containing all the generated points, with
+     * room for inside/outside flags
+     */
+    public static PointBuffer plotPoints(double leftBound, double rightBound, double min, double max, long numPoints) {
+        return plotPoints(leftBound, rightBound, min, max, numPoints, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Generates random points in a rectangle area from a seed. The points are
+     * the same ones ParallelMonteCarlo throws for that seed, so integrating
+     * them gives the same result as the parallel engine.
+     *
+     * @param leftBound minimum x value for any generated point
+     * @param rightBound maximum x value for any generated point
+     * @param min minimum y value for any generated point
+     * @param max maximum y value for any generated point
+     * @param numPoints the number of points the user wants to generate
+     * @param seed the seed, the same seed always gives the same points
+     * @return returns a PointBuffer containing all the generated points, with
+     * room for inside/outside flags
+     */
+    public static PointBuffer plotPoints(double leftBound, double rightBound, double min, double max, long numPoints, long seed) {
+        if (numPoints > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many points to store: " + numPoints);
+        }
+        return plotPoints(leftBound, rightBound, min, max, (int) Math.max(0, numPoints), new BlockSampler(seed));
+    }
+
+    /**
+     * Generates points in a rectangle area from any sampler
+     *
+     * @param leftBound minimum x value for any generated point
+     * @param rightBound maximum x value for any generated point
+     * @param min minimum value of the function on the range of integration
+     * @param max maximum value of the function on the range of integration
+     * @param numPoints the number of points the user wants to generate
+     * @param sampler where the points of the unit square come from
+     * @return returns a PointBuffer containing all the generated points, with
+     * room for inside/outside flags
+     */
+    public static PointBuffer plotPoints(double leftBound, double rightBound, double min, double max, int numPoints, PointSampler sampler) {
+        PointBuffer points = new PointBuffer(numPoints, true);
+        addPoints(points, leftBound, rightBound, min, max, numPoints, sampler);
+        return points;
+    }
+
+    /**
+     * Maps numPoints points of a sampler onto the bounding rectangle and
+     * appends them to a buffer
+     */
+    static void addPoints(PointBuffer points, double leftBound, double rightBound, double min, double max, int numPoints, PointSampler sampler) {
+        double bottom = clampMin(min, max);
+        double height = clampMax(min, max) - bottom;
+        double width = rightBound - leftBound;
+        double[] point = new double[2];
+
+        for (int i = 0; i < numPoints; i++) {
+            sampler.next(point);
+            points.add(leftBound + point[0] * width, bottom + point[1] * height);
+        }
+    }
+
+    /**
+     * Interpreted version of integrateRiem, kept for callers that already hold an exp4j
+     * Expression. Prefer passing a function compiled by ExpressionCompiler.
+     */
+    public static double integrateRiem(Expression function, double leftBound, double rightBound, long numPoints, String endPoints) {
+        return integrateRiem(ExpressionCompiler.interpret(function), leftBound, rightBound, numPoints, endPoints);
+    }
+
+    /**
+     * Calculates the area of a function on a given range using Riemann sums
+     * or a higher order quadrature rule
+     *
+     * @param function the function to integrate
+     * @param leftBound the left bound of integration
+     * @param rightBound the right bound of integration
+     * @param numPoints the number of rectangles to split the range in
+     * @param endPoints the rule: left, right, midpoint, trapezoid, simpson or
+     * romberg (see Quadrature)
+     * @return Returns the area under the curve on the range as estimated by the
+     * rule, 0 for an unknown rule.
+     */
+    public static double integrateRiem(DoubleUnaryOperator function, double leftBound, double rightBound, long numPoints, String endPoints) {
+        return integrateRiem(function, leftBound, rightBound, numPoints, endPoints, null);
+    }
+
+    /**
+     * Same as integrateRiem, reporting progress as the grid is evaluated
+     *
+     * @param function the function which must be integrated, must be
+     * thread-safe
+     * @param leftBound left bound of integration
+     * @param rightBound right bound for integration
+     * @param numPoints number of intervals
+     * @param endPoints name of the rule, e.g. "Left" or "Simpson"
+     * @param progress receives the number of grid points evaluated so far, up
+     * to Quadrature.gridPoints. Null to ignore
+     * @return the estimated net area, 0 for an unknown rule
+     */
+    public static double integrateRiem(DoubleUnaryOperator function, double leftBound, double rightBound, long numPoints, String endPoints,
+            LongConsumer progress) {
+        Quadrature.Rule rule = Quadrature.parse(endPoints);
+        if (rule == null) {
+            return 0;
+        }
+        ProfilingEvents.Integration event = new ProfilingEvents.Integration();
+        double area = Quadrature.integrate(rule, event.begin(function), leftBound, rightBound, numPoints, progress);
+        event.end(leftBound, rightBound, rule.toString(), numPoints);
+        return area;
+    }
+
+    /**
+     * Checks that a function is continuous and can be evaluated on an
+     * interval, see Singularities for how
+     *
+     * @param function the compiled function
+     * @param lowerBound the lower bound of the interval
+     * @param upperBound the upper bound of the interval
+     * @return "Invalid function" if an evaluation throws, "Function is not
+     * continuous on the interval" if f has a pole, a jump or isn't defined
+     * somewhere, whichever is leftmost, or "" if the function is fine
+     */
+    public static String checkContinuity(BatchFunction function, double lowerBound, double upperBound) {
+        List<Singularities.Singularity> singularities = Singularities.find(function, lowerBound, upperBound);
+        if (singularities.isEmpty()) {
+            return "";
+        }
+        return singularities.get(0).getKind() == Singularities.Kind.ERROR ? "Invalid function" : "Function is not continuous on the interval";
+    }
+
+    /**
+     * Checks that the bounds can be integrated numerically. There is no fixed
+     * limit, only values the arithmetic can't handle are rejected.
+     *
+     * @param lowerBound the lower bound of the interval
+     * @param upperBound the upper bound of the interval
+     * @return "Bounds must be finite numbers" for an infinite or NaN bound,
+     * "The interval is too wide" if its width overflows, or "" if the bounds
+     * are fine
+     */
+    public static String checkBounds(double lowerBound, double upperBound) {
+        if (!Double.isFinite(lowerBound) || !Double.isFinite(upperBound)) {
+            return "Bounds must be finite numbers";
+        }
+        if (!Double.isFinite(upperBound - lowerBound)) {
+            return "The interval is too wide";
+        }
+        return "";
+    }
+}
@@ -0,0 +1,53 @@
+package com.mycompany.montecarlo;
+
+import java.util.SplittableRandom;
+
+/**
+ * Latin hypercube design of a fixed number of points in the unit square.
+ *
+ * Both axes are cut into n equal slices and every slice of each axis receives
+ * exactly one point, with the x and y slices paired by a random permutation.
+ * The sampler must be asked for exactly n points.
+ */
+public final class LatinHypercubeSampler implements PointSampler {
+
+    private final SplittableRandom random;
+    private final int[] ySlices; // Random permutation giving the y slice of the point in each x slice
+    private final int[] xSlices; // Random order in which the x slices are visited
+    private int index; // Number of points already produced
+
+    /**
+     * @param numPoints the size of the design
+     * @param seed the random seed
+     */
+    public LatinHypercubeSampler(int numPoints, long seed) {
+        random = new SplittableRandom(seed);
+        xSlices = permutation(numPoints, random);
+        ySlices = permutation(numPoints, random);
+    }
+
+    @Override
+    public void next(double[] point) {
+        if (index >= xSlices.length) {
+            throw new IllegalStateException("Latin hypercube design exhausted");
+        }
+        double n = xSlices.length;
+        point[0] = Math.min((xSlices[index] + random.nextDouble()) / n, Math.nextDown(1.0));
+        point[1] = Math.min((ySlices[index] + random.nextDouble()) / n, Math.nextDown(1.0));
+        index++;
+    }
+
+    private static int[] permutation(int n, SplittableRandom random) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) { // Fisher-Yates shuffle
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,242 @@
+package com.mycompany.montecarlo;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Online estimator for Monte Carlo integration.
+ *
+ * Samples are consumed one at a time and only a running mean and variance are
+ * kept (Welford's algorithm), so the estimate, its standard error and a 95%
+ * confidence interval are available at any point without storing the samples.
+ * Each sample is one unbiased estimate of the integral, e.g. the rectangle area
+ * times +1, -1 or 0 for hit-or-miss.
+ */
+public final class MonteCarloEstimator {
+
+    public static final double Z_95 = 1.959963984540054; // Two-sided 95% quantile of the normal distribution
+
+    static final long MIN_SAMPLES_BEFORE_STOPPING = 1000; // The variance is meaningless before that
+
+    static final int CHECK_INTERVAL = 1024; // How many samples between two checks of the stopping rule
+
+    private long count; // Number of samples seen
+    private double mean; // Running mean of the samples
+    private double m2; // Running sum of squared differences from the mean
+    private boolean stoppedOnError; // Whether run() stopped because the error target was reached
+
+    /**
+     * Adds one sample
+     *
+     * @param sample an unbiased estimate of the integral
+     */
+    public void add(double sample) {
+        count++;
+        double delta = sample - mean;
+        mean += delta / count;
+        m2 += delta * (sample - mean);
+    }
+
+    /**
+     * Merges the samples of another estimator into this one, as if they had
+     * been added here (Chan et al. parallel variance update)
+     *
+     * @param other the estimator to merge, left unchanged
+     */
+    public void combine(MonteCarloEstimator other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+    }
+
+    /**
+     * Estimator of hit-or-miss samples known only by their counts: positive
+     * samples are +value, negative ones -value and the rest 0. Gives the same
+     * estimator as adding the samples one by one, up to rounding.
+     *
+     * @param count number of samples
+     * @param positive number of +value samples
+     * @param negative number of -value samples
+     * @param value area of the bounding rectangle
+     * @return the estimator
+     */
+    public static MonteCarloEstimator ofHits(long count, long positive, long negative, double value) {
+        if (positive < 0 || negative < 0 || positive + negative > count) {
+            throw new IllegalArgumentException("Invalid hit counts: " + positive + " + " + negative + " of " + count);
+        }
+        MonteCarloEstimator estimator = new MonteCarloEstimator();
+        if (count == 0) {
+            return estimator;
+        }
+        double mean = value * (positive - negative) / count;
+        estimator.count = count;
+        estimator.mean = mean;
+        estimator.m2 = positive * (value - mean) * (value - mean) + negative * (value + mean) * (value + mean)
+                + (count - positive - negative) * mean * mean;
+        return estimator;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the current estimate of the integral, NaN before any sample
+     */
+    public double getEstimate() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return the sample variance of a single sample
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    /**
+     * @return the standard error of the estimate
+     */
+    public double getStandardError() {
+        return count < 2 ? Double.NaN : Math.sqrt(getVariance() / count);
+    }
+
+    /**
+     * @return the half width of the 95% confidence interval
+     */
+    public double getHalfWidth() {
+        return Z_95 * getStandardError();
+    }
+
+    /**
+     * @return {lower, upper} bounds of the 95% confidence interval
+     */
+    public double[] getConfidenceInterval() {
+        double halfWidth = getHalfWidth();
+        return new double[]{mean - halfWidth, mean + halfWidth};
+    }
+
+    /**
+     * @return whether the last call to run() stopped because the error target
+     * was reached (and not because of the time or sample budget)
+     */
+    public boolean stoppedOnError() {
+        return stoppedOnError;
+    }
+
+    /**
+     * Whether the 95% half width is below the requested absolute or relative
+     * error
+     *
+     * @param absoluteError target half width, 0 or less to ignore
+     * @param relativeError target half width relative to the estimate, 0 or less
+     * to ignore
+     * @return true once one of the targets is met
+     */
+    public boolean isPrecise(double absoluteError, double relativeError) {
+        if (count < MIN_SAMPLES_BEFORE_STOPPING) {
+            return false;
+        }
+        double halfWidth = getHalfWidth();
+        if (absoluteError > 0 && halfWidth <= absoluteError) {
+            return true;
+        }
+        return relativeError > 0 && halfWidth <= relativeError * Math.abs(mean);
+    }
+
+    /**
+     * Pulls samples until the error target is reached, the time budget runs out
+     * or maxSamples samples were added.
+     *
+     * @param samples source of samples
+     * @param absoluteError target half width of the 95% interval, 0 or less to
+     * ignore
+     * @param relativeError target half width relative to the estimate, 0 or less
+     * to ignore
+     * @param timeBudgetMillis time budget in milliseconds, 0 or less for no
+     * limit
+     * @param maxSamples maximum total number of samples
+     * @return this estimator
+     */
+    public MonteCarloEstimator run(DoubleSupplier samples, double absoluteError, double relativeError, long timeBudgetMillis, long maxSamples) {
+        return run((batch, length) -> {
+            for (int i = 0; i < length; i++) {
+                batch[i] = samples.getAsDouble();
+            }
+        }, absoluteError, relativeError, timeBudgetMillis, maxSamples);
+    }
+
+    /**
+     * Fills an array with samples, so the function can be evaluated a whole
+     * chunk at a time
+     */
+    @FunctionalInterface
+    public interface SampleBatch {
+
+        /**
+         * @param samples receives the samples
+         * @param length number of samples to write, from index 0
+         */
+        void fill(double[] samples, int length);
+    }
+
+    /**
+     * Same as run(DoubleSupplier, ...) but pulls the samples in batches of
+     * CHECK_INTERVAL
+     *
+     * @param samples source of sample batches
+     * @param absoluteError target half width of the 95% interval, 0 or less to
+     * ignore
+     * @param relativeError target half width relative to the estimate, 0 or less
+     * to ignore
+     * @param timeBudgetMillis time budget in milliseconds, 0 or less for no
+     * limit
+     * @param maxSamples maximum total number of samples
+     * @return this estimator
+     */
+    public MonteCarloEstimator run(SampleBatch samples, double absoluteError, double relativeError, long timeBudgetMillis, long maxSamples) {
+        long start = System.nanoTime();
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis); // Saturates instead of overflowing
+        double[] batch = new double[CHECK_INTERVAL];
+        stoppedOnError = false;
+
+        while (count < maxSamples) {
+            int length = (int) Math.min(CHECK_INTERVAL, maxSamples - count);
+            samples.fill(batch, length);
+            for (int i = 0; i < length; i++) {
+                add(batch[i]);
+            }
+
+            if (isPrecise(absoluteError, relativeError)) {
+                stoppedOnError = true;
+                break;
+            }
+            if (timeBudgetMillis > 0 && System.nanoTime() - start >= budgetNanos) { // Differences of nanoTime don't overflow
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the estimate followed by the 95% half width, e.g. "21.3342 ± 0.0711"
+     */
+    @Override
+    public String toString() {
+        if (count < 2) {
+            return String.valueOf(getEstimate());
+        }
+        return String.format("%.6g ± %.2g", getEstimate(), getHalfWidth());
+    }
+}
@@ -0,0 +1,410 @@
+package com.mycompany.montecarlo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Multi-core hit-or-miss Monte Carlo integration.
+ *
+ * The point budget is cut into fixed size blocks. Every block draws its points
+ * from its own SplittableRandom whose seed only depends on the run seed and the
+ * block index, so threads never share a generator and the points (and the
+ * result) are the same no matter how many threads run the blocks.
+ *
+ * Points are never kept on the heap, so the number of points is only limited
+ * by time: the streaming estimators run the blocks in PROGRESS_STEPS waves and
+ * report the estimator of the points done so far after each one. The
+ * hit-or-miss estimator can also write every point to a SampleStore as it is
+ * thrown, each block at its own offset.
+ */
+public final class ParallelMonteCarlo {
+
+    static final int BLOCK_SIZE = 1 << 16; // Points per block, big enough to amortize task overhead
+
+    static final int PROGRESS_STEPS = 64; // Partial results reported by the streaming estimators
+
+    private ParallelMonteCarlo() {
+    }
+
+    /**
+     * Estimates the net area under f between the bounds using all available
+     * cores.
+     *
+     * @param function the function to integrate. Must be thread-safe, which is
+     * the case for functions from ExpressionCompiler
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param numPoints the number of random points to throw
+     * @param seed the seed of the run, the same seed always gives the same
+     * result
+     * @param threads number of worker threads, 0 or less to use the common
+     * ForkJoin pool
+     * @return an estimate of the net area between the 2 bounds
+     */
+    public static double integrate(DoubleUnaryOperator function, double leftBound, double rightBound, long numPoints, long seed, int threads) {
+        double[] range = Integrator.getRange(function, leftBound, rightBound);
+        double minValue = range[0];
+        double maxValue = range[1];
+
+        long[] counts = countHits(function, leftBound, rightBound, minValue, maxValue, numPoints, seed, threads);
+
+        double rectArea = Integrator.rectangleArea(leftBound, rightBound, minValue, maxValue);
+        double posArea = ((double) counts[0] / numPoints) * rectArea;
+        double negArea = ((double) counts[1] / numPoints) * rectArea;
+
+        return posArea - negArea;
+    }
+
+    /**
+     * Hit-or-miss Monte Carlo with a confidence interval, on as many points as
+     * needed. Gives the same hit counts as integrate for the same seed and
+     * range.
+     *
+     * @param function the function to integrate, must be thread-safe
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param min minimum value of the function on the interval
+     * @param max maximum value of the function on the interval
+     * @param numPoints the number of random points to throw
+     * @param seed the seed of the run
+     * @param progress receives the estimator of the points done so far after
+     * every wave of blocks, null to ignore
+     * @return the estimator of all the points
+     */
+    public static MonteCarloEstimator estimate(DoubleUnaryOperator function, double leftBound, double rightBound, double min, double max,
+            long numPoints, long seed, Consumer<MonteCarloEstimator> progress) {
+        try {
+            return estimate(function, leftBound, rightBound, min, max, numPoints, seed, progress, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen without a sink
+        }
+    }
+
+    /**
+     * Same as estimate, also writing every point thrown to a sample store, so
+     * the stored set is exactly the one integrated
+     *
+     * @param function the function to integrate, must be thread-safe
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param min minimum value of the function on the interval
+     * @param max maximum value of the function on the interval
+     * @param numPoints the number of random points to throw
+     * @param seed the seed of the run
+     * @param progress receives the estimator of the points done so far after
+     * every wave of blocks, null to ignore
+     * @param sink receives the points, created for Generator.BLOCKS with the
+     * same seed, bounds and range. A run that fails leaves the points of the
+     * waves that finished. Null to keep nothing
+     * @return the estimator of all the points
+     * @throws IOException if the points can't be written
+     */
+    public static MonteCarloEstimator estimate(DoubleUnaryOperator function, double leftBound, double rightBound, double min, double max,
+            long numPoints, long seed, Consumer<MonteCarloEstimator> progress, SampleStore.Writer sink) throws IOException {
+        if (numPoints <= 0) {
+            throw new IllegalArgumentException("Number of points must be positive");
+        }
+        long[] blockSeeds = blockSeeds(seed, numPoints);
+        double rectArea = Integrator.rectangleArea(leftBound, rightBound, min, max);
+        int steps = Math.min(PROGRESS_STEPS, blockSeeds.length);
+        long first = sink == null ? 0 : sink.reserve(numPoints);
+        long positive = 0;
+        long negative = 0;
+
+        for (int step = 0; step < steps; step++) {
+            int from = (int) ((long) step * blockSeeds.length / steps);
+            int to = (int) ((long) (step + 1) * blockSeeds.length / steps);
+            long[] counts;
+            try {
+                counts = ForkJoinPool.commonPool().invoke(new BlockTask(function, leftBound, rightBound, Integrator.clampMin(min, max),
+                        Integrator.clampMax(min, max), numPoints, blockSeeds, from, to, sink, first));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (sink != null) {
+                sink.commit(first + pointsBefore(to, numPoints)); // Every block of the wave is written
+            }
+            positive += counts[0];
+            negative += counts[1];
+            if (progress != null) {
+                progress.accept(MonteCarloEstimator.ofHits(pointsBefore(to, numPoints), positive, negative, rectArea));
+            }
+        }
+        return MonteCarloEstimator.ofHits(numPoints, positive, negative, rectArea);
+    }
+
+    /**
+     * Mean-value Monte Carlo on as many points as needed, the x values drawn
+     * from the blocks like the hit-or-miss ones
+     *
+     * @param function the function to integrate, must be thread-safe
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param numPoints the number of x values to draw
+     * @param seed the seed of the run
+     * @param progress receives the estimator of the points done so far after
+     * every wave of blocks, null to ignore
+     * @return the estimator of all the points
+     */
+    public static MonteCarloEstimator estimateMeanValue(DoubleUnaryOperator function, double leftBound, double rightBound,
+            long numPoints, long seed, Consumer<MonteCarloEstimator> progress) {
+        if (numPoints <= 0) {
+            throw new IllegalArgumentException("Number of points must be positive");
+        }
+        long[] blockSeeds = blockSeeds(seed, numPoints);
+        int steps = Math.min(PROGRESS_STEPS, blockSeeds.length);
+        MonteCarloEstimator estimator = new MonteCarloEstimator();
+
+        for (int step = 0; step < steps; step++) {
+            int from = (int) ((long) step * blockSeeds.length / steps);
+            int to = (int) ((long) (step + 1) * blockSeeds.length / steps);
+            estimator.combine(ForkJoinPool.commonPool().invoke(new MeanValueTask(BatchFunction.of(function), leftBound, rightBound - leftBound,
+                    numPoints, blockSeeds, from, to)));
+            if (progress != null) {
+                MonteCarloEstimator partial = new MonteCarloEstimator();
+                partial.combine(estimator);
+                progress.accept(partial);
+            }
+        }
+        return estimator;
+    }
+
+    /**
+     * The first points estimateMeanValue draws for a seed, so they can be
+     * drawn or integrated on their own
+     *
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param numPoints the number of x values
+     * @param seed the seed of the run
+     * @return the points, y left at 0 like Integrator.plotPoints with min = max
+     * = 0, with room for inside/outside flags
+     */
+    public static PointBuffer meanValuePoints(double leftBound, double rightBound, int numPoints, long seed) {
+        PointBuffer points = new PointBuffer(numPoints, true);
+        if (numPoints <= 0) {
+            return points;
+        }
+        long[] blockSeeds = blockSeeds(seed, numPoints);
+        double[] xs = new double[BLOCK_SIZE];
+        for (int block = 0; block < blockSeeds.length; block++) {
+            int length = blockLength(block, numPoints);
+            BlockSampler.drawX(new SplittableRandom(blockSeeds[block]), length, leftBound, rightBound - leftBound, xs);
+            for (int i = 0; i < length; i++) {
+                points.add(xs[i], 0);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Number of points in the blocks before a block
+     */
+    static long pointsBefore(int block, long numPoints) {
+        return Math.min(numPoints, (long) block * BLOCK_SIZE);
+    }
+
+    /**
+     * Throws points in the bounding rectangle and counts how many land above
+     * and below the x-axis inside the area.
+     *
+     * @return {positive hits, negative hits}
+     */
+    static long[] countHits(DoubleUnaryOperator function, double leftBound, double rightBound, double min, double max,
+            long numPoints, long seed, int threads) {
+        if (numPoints <= 0) {
+            throw new IllegalArgumentException("Number of points must be positive");
+        }
+        long[] blockSeeds = blockSeeds(seed, numPoints);
+        BlockTask task = new BlockTask(function, leftBound, rightBound, Integrator.clampMin(min, max), Integrator.clampMax(min, max),
+                numPoints, blockSeeds, 0, blockSeeds.length, null, 0);
+
+        if (threads <= 0) {
+            return ForkJoinPool.commonPool().invoke(task);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Derives one seed per block from the run seed
+     *
+     * @param seed the run seed
+     * @param numPoints total number of points
+     * @return the seed of every block, in block order
+     */
+    static long[] blockSeeds(long seed, long numPoints) {
+        long blocks = (numPoints + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (blocks > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many points: " + numPoints);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        long[] seeds = new long[(int) blocks];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = root.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Number of points in a block, only the last block can be smaller
+     */
+    static int blockLength(int block, long numPoints) {
+        return (int) Math.min(BLOCK_SIZE, numPoints - (long) block * BLOCK_SIZE);
+    }
+
+    /**
+     * Splits the block range in halves until a task holds a single block, then
+     * samples it. Hit counts are integers so summing them in any order gives the
+     * same result. Points go to the sink before f(x) overwrites their x.
+     */
+    private static final class BlockTask extends RecursiveTask<long[]> {
+
+        private final BatchFunction function;
+        private final double leftBound;
+        private final double width;
+        private final double min;
+        private final double height;
+        private final long numPoints;
+        private final long[] blockSeeds;
+        private final int from;
+        private final int to;
+        private final SampleStore.Writer sink; // Null to keep nothing
+        private final long first; // Index in the sink of the first point of the run
+
+        BlockTask(DoubleUnaryOperator function, double leftBound, double rightBound, double min, double max,
+                long numPoints, long[] blockSeeds, int from, int to, SampleStore.Writer sink, long first) {
+            this.function = BatchFunction.of(function);
+            this.leftBound = leftBound;
+            this.width = rightBound - leftBound;
+            this.min = min;
+            this.height = max - min;
+            this.numPoints = numPoints;
+            this.blockSeeds = blockSeeds;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+            this.first = first;
+        }
+
+        private BlockTask(BlockTask parent, int from, int to) {
+            this.function = parent.function;
+            this.leftBound = parent.leftBound;
+            this.width = parent.width;
+            this.min = parent.min;
+            this.height = parent.height;
+            this.numPoints = parent.numPoints;
+            this.blockSeeds = parent.blockSeeds;
+            this.from = from;
+            this.to = to;
+            this.sink = parent.sink;
+            this.first = parent.first;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                BlockTask left = new BlockTask(this, from, middle);
+                left.fork();
+                long[] right = new BlockTask(this, middle, to).compute();
+                long[] leftCounts = left.join();
+                return new long[]{leftCounts[0] + right[0], leftCounts[1] + right[1]};
+            }
+
+            SplittableRandom random = new SplittableRandom(blockSeeds[from]);
+            int length = blockLength(from, numPoints);
+            long counterPos = 0;
+            long counterNeg = 0;
+            double[] values = new double[BatchFunction.CHUNK_SIZE]; // x values, then f(x) in place
+            double[] ys = new double[BatchFunction.CHUNK_SIZE];
+
+            for (int start = 0; start < length; start += values.length) {
+                int chunk = Math.min(values.length, length - start);
+                BlockSampler.draw(random, chunk, leftBound, width, min, height, values, ys);
+                if (sink != null) {
+                    try {
+                        sink.write(first + pointsBefore(from, numPoints) + start, values, ys, chunk);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                function.evaluate(values, values, 0, chunk);
+
+                for (int i = 0; i < chunk; i++) {
+                    int hit = Integrator.hit(values[i], ys[i]);
+                    if (hit > 0) {
+                        counterPos++;
+                    } else if (hit < 0) {
+                        counterNeg++;
+                    }
+                }
+            }
+            return new long[]{counterPos, counterNeg};
+        }
+    }
+
+    /**
+     * Same split as BlockTask, every block adding width * f(x) to its own
+     * estimator. The estimators are combined in block order whatever thread
+     * ran them, so the result doesn't depend on the number of threads.
+     */
+    private static final class MeanValueTask extends RecursiveTask<MonteCarloEstimator> {
+
+        private final BatchFunction function;
+        private final double leftBound;
+        private final double width;
+        private final long numPoints;
+        private final long[] blockSeeds;
+        private final int from;
+        private final int to;
+
+        MeanValueTask(BatchFunction function, double leftBound, double width, long numPoints, long[] blockSeeds, int from, int to) {
+            this.function = function;
+            this.leftBound = leftBound;
+            this.width = width;
+            this.numPoints = numPoints;
+            this.blockSeeds = blockSeeds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected MonteCarloEstimator compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                MeanValueTask left = new MeanValueTask(function, leftBound, width, numPoints, blockSeeds, from, middle);
+                left.fork();
+                MonteCarloEstimator right = new MeanValueTask(function, leftBound, width, numPoints, blockSeeds, middle, to).compute();
+                MonteCarloEstimator estimator = left.join();
+                estimator.combine(right);
+                return estimator;
+            }
+
+            SplittableRandom random = new SplittableRandom(blockSeeds[from]);
+            int length = blockLength(from, numPoints);
+            MonteCarloEstimator estimator = new MonteCarloEstimator();
+            double[] values = new double[BatchFunction.CHUNK_SIZE]; // x values, then f(x) in place
+
+            for (int start = 0; start < length; start += values.length) {
+                int chunk = Math.min(values.length, length - start);
+                BlockSampler.drawX(random, chunk, leftBound, width, values);
+                function.evaluate(values, values, 0, chunk);
+
+                for (int i = 0; i < chunk; i++) {
+                    estimator.add(width * values[i]);
+                }
+            }
+            return estimator;
+        }
+    }
+}
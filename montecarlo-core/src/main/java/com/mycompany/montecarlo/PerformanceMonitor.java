@@ -0,0 +1,266 @@
+package com.mycompany.montecarlo;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records where the time of an update goes, phase by phase: wall time, number
+ * of function evaluations and bytes allocated.
+ *
+ * A phase is timed with a span in a try-with-resources block. Evaluations are
+ * counted by wrapping the function with counting(), on any thread, and the
+ * span reports the evaluations of the function it was given. Allocated
+ * bytes come from the ThreadMXBean and only cover the thread that opened the
+ * span, so work handed to the ForkJoin pool shows up in time and evaluations
+ * but not in bytes.
+ *
+ * Every phase keeps its last WINDOW durations for rolling percentiles. The
+ * latest run (everything since beginRun()) is kept separately for the
+ * breakdown shown by the performance panel.
+ */
+public final class PerformanceMonitor {
+
+    /**
+     * The phases of an update, in the order they run
+     */
+    public enum Phase {
+        PARSE, CONTINUITY, CURVE, RANGE, SAMPLING, INTEGRATION, PLOT, DISPLAY
+    }
+
+    static final int WINDOW = 256; // Durations kept per phase for the percentiles
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final Map<Phase, long[]> durations = new EnumMap<>(Phase.class); // Ring buffers of nanoseconds
+    private final Map<Phase, Long> recorded = new EnumMap<>(Phase.class); // Durations recorded per phase, ever
+    private final Map<Phase, Measurement> latest = new EnumMap<>(Phase.class); // Phases of the latest run
+
+    /**
+     * What one phase of one run cost
+     */
+    public static final class Measurement {
+
+        private final Phase phase;
+        private final long nanos;
+        private final long evaluations;
+        private final long allocatedBytes;
+
+        Measurement(Phase phase, long nanos, long evaluations, long allocatedBytes) {
+            this.phase = phase;
+            this.nanos = nanos;
+            this.evaluations = evaluations;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        /**
+         * @return bytes allocated by the thread that ran the phase, -1 if the
+         * JVM can't measure it
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        Measurement plus(Measurement other) {
+            long bytes = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes;
+            return new Measurement(phase, nanos + other.nanos, evaluations + other.evaluations, bytes);
+        }
+    }
+
+    /**
+     * A function that counts its evaluations, thread-safe
+     */
+    public static final class CountingFunction implements BatchFunction {
+
+        private final BatchFunction delegate;
+        private final LongAdder evaluations = new LongAdder();
+
+        CountingFunction(BatchFunction delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public double applyAsDouble(double x) {
+            evaluations.increment();
+            return delegate.applyAsDouble(x);
+        }
+
+        @Override
+        public void evaluate(double[] xs, double[] out, int from, int to) {
+            evaluations.add(to - from);
+            delegate.evaluate(xs, out, from, to);
+        }
+
+        public long getEvaluations() {
+            return evaluations.sum();
+        }
+
+        @Override
+        public String getEquation() {
+            return delegate.getEquation();
+        }
+    }
+
+    /**
+     * A phase being timed, closing it records the measurement
+     */
+    public final class Span implements AutoCloseable {
+
+        private final Phase phase;
+        private final CountingFunction function;
+        private final long startNanos;
+        private final long startEvaluations;
+        private final long startBytes;
+
+        private Span(Phase phase, CountingFunction function) {
+            this.phase = phase;
+            this.function = function;
+            this.startBytes = allocatedBytes();
+            this.startEvaluations = function == null ? 0 : function.getEvaluations();
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - startNanos;
+            long evaluated = function == null ? 0 : function.getEvaluations() - startEvaluations;
+            long bytes = startBytes < 0 ? -1 : allocatedBytes() - startBytes;
+            record(new Measurement(phase, nanos, evaluated, bytes));
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Starts timing a phase that doesn't evaluate the function
+     *
+     * @param phase the phase
+     * @return the span, to close when the phase ends
+     */
+    public Span start(Phase phase) {
+        return new Span(phase, null);
+    }
+
+    /**
+     * Starts timing a phase
+     *
+     * @param phase the phase
+     * @param function the function whose evaluations during the phase are
+     * counted
+     * @return the span, to close when the phase ends
+     */
+    public Span start(Phase phase, CountingFunction function) {
+        return new Span(phase, function);
+    }
+
+    /**
+     * Wraps a function so its evaluations can be counted by spans
+     *
+     * @param function the function
+     * @return the counting function
+     */
+    public static CountingFunction counting(BatchFunction function) {
+        return new CountingFunction(function);
+    }
+
+    /**
+     * Forgets the breakdown of the previous run. The percentiles keep their
+     * history.
+     */
+    public synchronized void beginRun() {
+        latest.clear();
+    }
+
+    synchronized void record(Measurement measurement) {
+        Phase phase = measurement.getPhase();
+        long count = recorded.getOrDefault(phase, 0L);
+        durations.computeIfAbsent(phase, p -> new long[WINDOW])[(int) (count % WINDOW)] = measurement.getNanos();
+        recorded.put(phase, count + 1);
+
+        Measurement previous = latest.get(phase);
+        latest.put(phase, previous == null ? measurement : previous.plus(measurement)); // A phase can run more than once per run
+    }
+
+    /**
+     * @return the phases of the latest run, in phase order
+     */
+    public synchronized List<Measurement> getLatest() {
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * @param phase the phase
+     * @param quantile between 0 and 1, e.g. 0.9 for the 90th percentile
+     * @return the percentile of the last WINDOW durations of the phase in
+     * nanoseconds, -1 if it never ran
+     */
+    public synchronized long percentile(Phase phase, double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        long count = Math.min(WINDOW, recorded.getOrDefault(phase, 0L));
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(durations.get(phase), (int) count);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(count - 1, Math.round(quantile * (count - 1)))]; // Nearest rank
+    }
+
+    /**
+     * @param phase the phase
+     * @return how many times the phase was recorded
+     */
+    public synchronized long getCount(Phase phase) {
+        return recorded.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return the breakdown of the latest run followed by the rolling
+     * percentiles, one line per phase
+     */
+    public synchronized String report() {
+        StringBuilder text = new StringBuilder(String.format("%-12s %9s %12s %10s %20s%n", "Phase", "ms", "evaluations", "KB", "p50/p90/p99 ms"));
+        for (Phase phase : Phase.values()) {
+            if (getCount(phase) == 0) {
+                continue;
+            }
+            Measurement measurement = latest.get(phase);
+            String last = measurement == null ? String.format("%9s %12s %10s", "-", "-", "-")
+                    : String.format("%9.2f %12d %10s", measurement.getNanos() / 1e6, measurement.getEvaluations(),
+                            measurement.getAllocatedBytes() < 0 ? "?" : String.valueOf(measurement.getAllocatedBytes() / 1024));
+            text.append(String.format("%-12s %s %20s%n", phase, last, String.format("%.2f/%.2f/%.2f",
+                    percentile(phase, 0.5) / 1e6, percentile(phase, 0.9) / 1e6, percentile(phase, 0.99) / 1e6)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.mycompany.montecarlo;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Stores sample points as two primitive arrays (struct of arrays) instead of
+ * boxed map entries.
+ *
+ * Each point costs 16 bytes plus one bit when inside/outside flags are kept,
+ * points with the same x value are all kept, and loops over xs/ys walk memory
+ * sequentially.
+ */
+public final class PointBuffer {
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8; // Largest array the JVM reliably allocates
+
+    private double[] xs; // x coordinates, only the first size entries are used
+    private double[] ys; // y coordinates, only the first size entries are used
+    private BitSet inside; // Whether each point is between the curve and the x-axis, null if not tracked
+    private int size; // Number of points stored
+
+    /**
+     * Creates an empty buffer without inside/outside flags
+     *
+     * @param capacity number of points to allocate room for
+     */
+    public PointBuffer(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Creates an empty buffer
+     *
+     * @param capacity number of points to allocate room for
+     * @param trackInside whether to keep an inside/outside flag per point
+     */
+    public PointBuffer(int capacity, boolean trackInside) {
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        xs = new double[capacity];
+        ys = new double[capacity];
+        inside = trackInside ? new BitSet(capacity) : null;
+    }
+
+    /**
+     * Appends a point, growing the arrays if needed
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public void add(double x, double y) {
+        if (size == xs.length) {
+            grow();
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    private void grow() {
+        if (xs.length == MAX_CAPACITY) {
+            throw new IllegalStateException("PointBuffer is full");
+        }
+        int newCapacity = (int) Math.min(MAX_CAPACITY, Math.max(16L, xs.length * 2L));
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Replaces the y coordinate of a point
+     *
+     * @param index the point index
+     * @param y the new y coordinate
+     */
+    public void setY(int index, double y) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        }
+        ys[index] = y;
+    }
+
+    /**
+     * Direct access to the x array for tight loops. Only indexes below size()
+     * are valid. The array is replaced when the buffer grows.
+     *
+     * @return the backing x array
+     */
+    public double[] xs() {
+        return xs;
+    }
+
+    /**
+     * Direct access to the y array for tight loops. Only indexes below size()
+     * are valid. The array is replaced when the buffer grows.
+     *
+     * @return the backing y array
+     */
+    public double[] ys() {
+        return ys;
+    }
+
+    public boolean tracksInside() {
+        return inside != null;
+    }
+
+    /**
+     * Records whether a point lies between the curve and the x-axis. Ignored if
+     * the buffer doesn't track inside/outside flags.
+     *
+     * @param index the point index
+     * @param value true if the point is inside the area
+     */
+    public void setInside(int index, boolean value) {
+        if (inside != null) {
+            inside.set(index, value);
+        }
+    }
+
+    /**
+     * Marks point offset + i as inside for every bit i set in flags. Ignored if
+     * the buffer doesn't track inside/outside flags.
+     *
+     * @param offset index of the point matching bit 0
+     * @param flags the inside flags of a range of points
+     */
+    public void setInside(int offset, BitSet flags) {
+        if (inside == null) {
+            return;
+        }
+        for (int i = flags.nextSetBit(0); i >= 0; i = flags.nextSetBit(i + 1)) {
+            inside.set(offset + i);
+        }
+    }
+
+    /**
+     * @param index the point index
+     * @return whether the point was marked as inside the area
+     * @throws IllegalStateException if the buffer doesn't track inside flags
+     */
+    public boolean isInside(int index) {
+        if (inside == null) {
+            throw new IllegalStateException("Inside/outside flags are not tracked");
+        }
+        return inside.get(index);
+    }
+
+    /**
+     * Removes all points but keeps the allocated arrays
+     */
+    public void clear() {
+        size = 0;
+        if (inside != null) {
+            inside.clear();
+        }
+    }
+}
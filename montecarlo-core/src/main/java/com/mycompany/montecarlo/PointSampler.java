@@ -0,0 +1,18 @@
+package com.mycompany.montecarlo;
+
+/**
+ * Source of sample points in the unit square [0, 1) x [0, 1).
+ *
+ * Integrator.plotPoints maps the points onto the bounding rectangle of the function,
+ * so every sampling strategy (pseudo random, low discrepancy, ...) plugs into
+ * the same point buffer and display code.
+ */
+public interface PointSampler {
+
+    /**
+     * Writes the next point into point[0] (x) and point[1] (y), both in [0, 1)
+     *
+     * @param point array of length 2 receiving the point
+     */
+    void next(double[] point);
+}
@@ -0,0 +1,121 @@
+package com.mycompany.montecarlo;
+
+import java.util.function.DoubleUnaryOperator;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the integrations, range searches and
+ * rendering passes, so CPU samples and GC pauses of a recording can be tied
+ * to the job that caused them.
+ *
+ * An event is used like this:
+ *
+ * <pre>
+ * ProfilingEvents.Integration event = new ProfilingEvents.Integration();
+ * BatchFunction f = event.begin(function);
+ * ... evaluate f ...
+ * event.end(lowerBound, upperBound, method, numPoints);
+ * </pre>
+ *
+ * When JFR is off (or the event is disabled in the recording settings)
+ * begin() returns the function unchanged and end() does nothing, and the JIT
+ * removes the event object. Only an enabled event wraps the function to count
+ * its evaluations. The duration is the one JFR measures between begin() and
+ * end().
+ */
+public final class ProfilingEvents {
+
+    private ProfilingEvents() {
+    }
+
+    /**
+     * Fields shared by every event of the app
+     */
+    @Category({"Monte Carlo Integration"})
+    @StackTrace(false)
+    public abstract static class JobEvent extends Event {
+
+        @Label("Equation")
+        String equation;
+
+        @Label("Lower Bound")
+        double lowerBound;
+
+        @Label("Upper Bound")
+        double upperBound;
+
+        @Label("Method")
+        String method;
+
+        @Label("Points")
+        @Description("Number of points, rectangles or evaluation budget requested")
+        long numPoints;
+
+        @Label("Evaluations")
+        @Description("Evaluations of the function between the start and the end of the event")
+        long evaluations;
+
+        private PerformanceMonitor.CountingFunction counted; // Not recorded, only set while the event is enabled
+
+        /**
+         * Starts the event
+         *
+         * @param function the function the event is about
+         * @return the function to evaluate during the event, counting its
+         * evaluations if the event is enabled
+         */
+        public BatchFunction begin(DoubleUnaryOperator function) {
+            begin();
+            BatchFunction batch = BatchFunction.of(function);
+            if (!isEnabled()) {
+                return batch;
+            }
+            counted = PerformanceMonitor.counting(batch);
+            return counted;
+        }
+
+        /**
+         * Ends the event and commits it if the recording wants it
+         *
+         * @param lowerBound the lower bound of the interval
+         * @param upperBound the upper bound of the interval
+         * @param method the method or rule
+         * @param numPoints the number of points
+         */
+        public void end(double lowerBound, double upperBound, String method, long numPoints) {
+            end();
+            if (shouldCommit()) {
+                this.equation = counted == null ? "" : counted.getEquation();
+                this.evaluations = counted == null ? 0 : counted.getEvaluations();
+                this.lowerBound = lowerBound;
+                this.upperBound = upperBound;
+                this.method = method;
+                this.numPoints = numPoints;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.mycompany.montecarlo.Integration")
+    @Label("Integration")
+    @Description("One call of Integrator.integrateMonteCarlo or Integrator.integrateRiem")
+    public static final class Integration extends JobEvent {
+    }
+
+    @Name("com.mycompany.montecarlo.RangeSearch")
+    @Label("Range Search")
+    @Description("Search of the minimum and maximum of the function on the interval")
+    public static final class RangeSearch extends JobEvent {
+    }
+
+    @Name("com.mycompany.montecarlo.Render")
+    @Label("Render")
+    @Description("Drawing of the curve, the sample points or the quadrature panels")
+    public static final class Render extends JobEvent {
+    }
+}
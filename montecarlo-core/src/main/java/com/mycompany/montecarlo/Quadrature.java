@@ -0,0 +1,286 @@
+package com.mycompany.montecarlo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongConsumer;
+
+/**
+ * Deterministic quadrature on a uniform grid, behind Integrator.integrateRiem.
+ *
+ * Left and right sums converge as O(1/N), midpoint and trapezoid as O(1/N^2),
+ * composite Simpson as O(1/N^4). Romberg extrapolates trapezoid sums on
+ * grids of 1, 2, 4... intervals, each level only evaluating the new midpoints,
+ * and is exact for polynomials of degree 2k+1 after k levels. Every rule uses
+ * about N evaluations for N intervals.
+ *
+ * Grids are cut into BLOCK_SIZE point blocks summed in parallel on the common
+ * ForkJoin pool, each with Kahan compensation. Block sums are added pairwise
+ * in a fixed order, so the result doesn't depend on the number of threads.
+ * Blocks run in PROGRESS_STEPS waves, after each of which the number of points
+ * done can be reported.
+ */
+public final class Quadrature {
+
+    /**
+     * The rules, selected by name (case-insensitive) in the endpoint ComboBox
+     */
+    public enum Rule {
+        LEFT, RIGHT, MIDPOINT, TRAPEZOID, SIMPSON, ROMBERG
+    }
+
+    static final int BLOCK_SIZE = 1 << 16; // Grid points per task, like ParallelMonteCarlo.BLOCK_SIZE
+
+    static final int PROGRESS_STEPS = 64; // Progress reports per grid, like ParallelMonteCarlo.PROGRESS_STEPS
+
+    private Quadrature() {
+    }
+
+    /**
+     * @param name name of a rule, e.g. "Left" or "simpson"
+     * @return the rule, null if there is none with that name
+     */
+    public static Rule parse(String name) {
+        for (Rule rule : Rule.values()) {
+            if (rule.name().equalsIgnoreCase(name)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Integrates a function with a rule
+     *
+     * @param rule the rule
+     * @param function the function to integrate, must be thread-safe
+     * @param leftBound the left bound of integration
+     * @param rightBound the right bound of integration
+     * @param numPoints number of intervals. Simpson rounds it up to an even
+     * number, Romberg down to a power of two
+     * @return the estimated net area
+     */
+    public static double integrate(Rule rule, DoubleUnaryOperator function, double leftBound, double rightBound, long numPoints) {
+        return integrate(rule, function, leftBound, rightBound, numPoints, null);
+    }
+
+    /**
+     * Integrates a function with a rule, reporting progress
+     *
+     * @param rule the rule
+     * @param function the function to integrate, must be thread-safe
+     * @param leftBound the left bound of integration
+     * @param rightBound the right bound of integration
+     * @param numPoints number of intervals. Simpson rounds it up to an even
+     * number, Romberg down to a power of two
+     * @param progress receives the number of grid points evaluated so far
+     * after every wave of blocks, up to gridPoints(rule, numPoints). Null to
+     * ignore
+     * @return the estimated net area
+     */
+    public static double integrate(Rule rule, DoubleUnaryOperator function, double leftBound, double rightBound, long numPoints,
+            LongConsumer progress) {
+        BatchFunction batch = BatchFunction.of(function);
+        Progress done = new Progress(progress);
+        double h = (rightBound - leftBound) / numPoints;
+
+        switch (rule) {
+            case LEFT:
+                return h * sumGrid(batch, leftBound, h, numPoints, done);
+            case RIGHT:
+                return h * sumGrid(batch, leftBound + h, h, numPoints, done);
+            case MIDPOINT:
+                return h * sumGrid(batch, leftBound + h / 2, h, numPoints, done);
+            case TRAPEZOID:
+                return h * ((batch.applyAsDouble(leftBound) + batch.applyAsDouble(rightBound)) / 2
+                        + sumGrid(batch, leftBound + h, h, numPoints - 1, done));
+            case SIMPSON:
+                return simpson(batch, leftBound, rightBound, simpsonIntervals(numPoints), done);
+            case ROMBERG:
+                return romberg(batch, leftBound, rightBound, rombergIntervals(numPoints), done);
+            default:
+                throw new IllegalArgumentException("Unknown rule: " + rule);
+        }
+    }
+
+    /**
+     * @param rule the rule
+     * @param numPoints the requested number of intervals
+     * @return the number of grid points integrate reports as done at the
+     * end, which leaves out the 2 end points some rules evaluate on their own
+     */
+    public static long gridPoints(Rule rule, long numPoints) {
+        switch (rule) {
+            case TRAPEZOID:
+                return numPoints - 1;
+            case SIMPSON:
+                return simpsonIntervals(numPoints) - 1;
+            case ROMBERG:
+                return rombergIntervals(numPoints) - 1;
+            default:
+                return numPoints;
+        }
+    }
+
+    /**
+     * @param numPoints the requested number of intervals
+     * @return the number of intervals Simpson's rule uses, even and at least 2
+     */
+    public static long simpsonIntervals(long numPoints) {
+        return Math.max(2, numPoints + (numPoints & 1));
+    }
+
+    /**
+     * @param numPoints the requested number of intervals
+     * @return the number of intervals of the finest Romberg level, the largest
+     * power of two not above numPoints. There is no other cap, the tableau
+     * only holds one entry per level
+     */
+    public static long rombergIntervals(long numPoints) {
+        return Long.highestOneBit(Math.max(1, numPoints));
+    }
+
+    private static double simpson(BatchFunction function, double leftBound, double rightBound, long intervals, Progress done) {
+        double h = (rightBound - leftBound) / intervals;
+        double odd = sumGrid(function, leftBound + h, 2 * h, intervals / 2, done); // Weight 4
+        double even = sumGrid(function, leftBound + 2 * h, 2 * h, intervals / 2 - 1, done); // Weight 2
+        return h / 3 * (function.applyAsDouble(leftBound) + function.applyAsDouble(rightBound) + 4 * odd + 2 * even);
+    }
+
+    /**
+     * Romberg's method. Row k starts with the trapezoid sum on 2^k intervals,
+     * built from row k - 1 and the 2^(k - 1) new midpoints, then Richardson
+     * extrapolation removes one more even power of h per column.
+     */
+    private static double romberg(BatchFunction function, double leftBound, double rightBound, long intervals, Progress done) {
+        int levels = Long.numberOfTrailingZeros(intervals);
+        double width = rightBound - leftBound;
+        double[] previous = new double[levels + 1];
+        double[] current = new double[levels + 1];
+        previous[0] = width / 2 * (function.applyAsDouble(leftBound) + function.applyAsDouble(rightBound));
+
+        for (int k = 1; k <= levels; k++) {
+            double h = width / (1L << k);
+            current[0] = previous[0] / 2 + h * sumGrid(function, leftBound + h, 2 * h, 1L << (k - 1), done);
+            double factor = 1;
+            for (int j = 1; j <= k; j++) {
+                factor *= 4;
+                current[j] = current[j - 1] + (current[j - 1] - previous[j - 1]) / (factor - 1);
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[levels];
+    }
+
+    /**
+     * Sum of f(start + i * step) for i from 0 to count - 1
+     */
+    static double sumGrid(BatchFunction function, double start, double step, long count) {
+        return sumGrid(function, start, step, count, new Progress(null));
+    }
+
+    /**
+     * Sum of f(start + i * step) for i from 0 to count - 1. A single block is
+     * summed on the calling thread, more run in waves on the common pool.
+     */
+    private static double sumGrid(BatchFunction function, double start, double step, long count, Progress done) {
+        if (count <= 0) {
+            return 0;
+        }
+        long blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long steps = Math.min(PROGRESS_STEPS, blocks);
+        double sum = 0;
+        double compensation = 0; // Kahan: low order bits lost by the last addition
+
+        for (long wave = 0; wave < steps; wave++) {
+            long from = wave * blocks / steps;
+            long to = (wave + 1) * blocks / steps;
+            GridTask task = new GridTask(function, start, step, count, from, to);
+            double part = to - from == 1 ? task.compute() : ForkJoinPool.commonPool().invoke(task);
+
+            double y = part - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            done.add(Math.min(count, to * BLOCK_SIZE) - Math.min(count, from * BLOCK_SIZE));
+        }
+        return sum;
+    }
+
+    /**
+     * Splits a range of blocks in halves until a task holds a single block,
+     * then sums it with Kahan compensation. The halves are added in the same
+     * tree whatever thread ran them, which makes the block sums pairwise.
+     */
+    private static final class GridTask extends RecursiveTask<Double> {
+
+        private final BatchFunction function;
+        private final double start;
+        private final double step;
+        private final long count;
+        private final long from;
+        private final long to;
+
+        GridTask(BatchFunction function, double start, double step, long count, long from, long to) {
+            this.function = function;
+            this.start = start;
+            this.step = step;
+            this.count = count;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > 1) {
+                long middle = (from + to) >>> 1;
+                GridTask left = new GridTask(function, start, step, count, from, middle);
+                left.fork();
+                double right = new GridTask(function, start, step, count, middle, to).compute();
+                return left.join() + right;
+            }
+
+            long first = from * BLOCK_SIZE;
+            long last = Math.min(count, first + BLOCK_SIZE);
+            double sum = 0;
+            double compensation = 0;
+            double[] values = new double[BatchFunction.CHUNK_SIZE];
+            for (long i = first; i < last; i += values.length) {
+                int length = (int) Math.min(values.length, last - i);
+                for (int j = 0; j < length; j++) {
+                    values[j] = start + (i + j) * step;
+                }
+                function.evaluate(values, values, 0, length);
+                for (int j = 0; j < length; j++) {
+                    double y = values[j] - compensation;
+                    double t = sum + y;
+                    compensation = (t - sum) - y;
+                    sum = t;
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Grid points evaluated by one integration, which can span several grids
+     */
+    private static final class Progress {
+
+        private final LongConsumer listener;
+        private long done;
+
+        Progress(LongConsumer listener) {
+            this.listener = listener;
+        }
+
+        void add(long points) {
+            done += points;
+            if (listener != null) {
+                listener.accept(done);
+            }
+        }
+    }
+}
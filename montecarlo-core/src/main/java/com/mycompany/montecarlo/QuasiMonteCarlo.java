@@ -0,0 +1,119 @@
+package com.mycompany.montecarlo;
+
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Randomized quasi-Monte Carlo integration.
+ *
+ * Points come from scrambled low discrepancy sequences instead of pseudo random
+ * numbers. The point budget is split into REPLICATES independently scrambled
+ * copies of the sequence; each copy gives an unbiased estimate and the spread
+ * between copies gives the error estimate.
+ *
+ * The area is estimated from the x coordinates only, (b - a) * mean(f(x)),
+ * because a smooth integrand is what lets QMC converge close to O(1/N). The y
+ * coordinates are still used to mark points inside or outside the area for the
+ * display.
+ */
+public final class QuasiMonteCarlo {
+
+    /**
+     * The low discrepancy sequences available
+     */
+    public enum Sequence {
+        SOBOL, HALTON
+    }
+
+    public static final int REPLICATES = 8; // Independent scramblings used for the error estimate
+
+    private QuasiMonteCarlo() {
+    }
+
+    /**
+     * Creates a scrambled sampler
+     *
+     * @param sequence which sequence to use
+     * @param seed the scrambling seed
+     * @return the sampler
+     */
+    public static PointSampler sampler(Sequence sequence, long seed) {
+        return sequence == Sequence.HALTON ? new HaltonSampler(seed) : new SobolSampler(seed);
+    }
+
+    /**
+     * Generates numPoints low discrepancy points in the bounding rectangle, as
+     * REPLICATES consecutive independently scrambled runs
+     *
+     * @param leftBound minimum x value for any generated point
+     * @param rightBound maximum x value for any generated point
+     * @param min minimum of the function on the range
+     * @param max maximum of the function on the range
+     * @param numPoints the number of points to generate
+     * @param sequence which sequence to use
+     * @param seed the scrambling seed
+     * @return the points, with room for inside/outside flags
+     */
+    public static PointBuffer plotPoints(double leftBound, double rightBound, double min, double max, int numPoints, Sequence sequence, long seed) {
+        PointBuffer points = new PointBuffer(numPoints, true);
+        SplittableRandom seeds = new SplittableRandom(seed);
+        int replicates = replicates(numPoints);
+
+        for (int r = 0; r < replicates; r++) {
+            int length = replicateStart(r + 1, numPoints) - replicateStart(r, numPoints);
+            Integrator.addPoints(points, leftBound, rightBound, min, max, length, sampler(sequence, seeds.nextLong()));
+        }
+        return points;
+    }
+
+    /**
+     * Estimates the net area from points made by plotPoints. Also marks every
+     * point as inside or outside the area.
+     *
+     * @param function the function to integrate
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param points the points from plotPoints
+     * @return an estimator fed with one estimate per replicate, its standard
+     * error is the randomized QMC error estimate
+     */
+    public static MonteCarloEstimator estimate(DoubleUnaryOperator function, double leftBound, double rightBound, PointBuffer points) {
+        MonteCarloEstimator estimator = new MonteCarloEstimator();
+        BatchFunction batch = BatchFunction.of(function);
+        double width = rightBound - leftBound;
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        double[] values = new double[BatchFunction.CHUNK_SIZE];
+        int replicates = replicates(points.size());
+
+        for (int r = 0; r < replicates; r++) {
+            int from = replicateStart(r, points.size());
+            int to = replicateStart(r + 1, points.size());
+            double sum = 0;
+
+            for (int start = from; start < to; start += values.length) {
+                int length = Math.min(values.length, to - start);
+                System.arraycopy(xs, start, values, 0, length);
+                batch.evaluate(values, values, 0, length);
+                for (int j = 0; j < length; j++) {
+                    sum += values[j];
+                    points.setInside(start + j, Integrator.hit(values[j], ys[start + j]) != 0);
+                }
+            }
+            estimator.add(width * sum / (to - from));
+        }
+        return estimator;
+    }
+
+    private static int replicates(int numPoints) {
+        return Math.max(1, Math.min(REPLICATES, numPoints));
+    }
+
+    /**
+     * Index of the first point of a replicate, the points are split as evenly
+     * as possible
+     */
+    private static int replicateStart(int replicate, int numPoints) {
+        return (int) ((long) replicate * numPoints / replicates(numPoints));
+    }
+}
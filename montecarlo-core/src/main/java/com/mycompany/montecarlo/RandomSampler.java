@@ -0,0 +1,21 @@
+package com.mycompany.montecarlo;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plain pseudo random points, both coordinates uniform and independent
+ */
+public final class RandomSampler implements PointSampler {
+
+    private final SplittableRandom random;
+
+    public RandomSampler(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public void next(double[] point) {
+        point[0] = random.nextDouble();
+        point[1] = random.nextDouble();
+    }
+}
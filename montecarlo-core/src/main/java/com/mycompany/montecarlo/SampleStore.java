@@ -0,0 +1,462 @@
+package com.mycompany.montecarlo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.LongStream;
+
+/**
+ * Sample points kept in a memory-mapped file, so a result can be audited and
+ * an experiment replayed on exactly the same points, even when they don't fit
+ * on the heap.
+ *
+ * The file is a HEADER_BYTES header followed by the points as packed
+ * little-endian doubles, x then y for every point:
+ *
+ * <pre>
+ * offset  type    field
+ *  0      int     MAGIC ("MCSS")
+ *  4      int     VERSION
+ *  8      int     generator (Generator ordinal)
+ * 12      int     reserved, 0
+ * 16      long    seed
+ * 24      double  left bound
+ * 32      double  right bound
+ * 40      double  minimum of the function
+ * 48      double  maximum of the function
+ * 56      long    number of points
+ * 64      double  x0, y0, x1, y1, ...
+ * </pre>
+ *
+ * The file is mapped WINDOW_POINTS points at a time, because a single mapping
+ * is limited to 2 GB. Replaying reads the mapped pages a chunk at a time, so
+ * the points are never copied to the heap as a whole. Writing goes through the
+ * channel instead, so no mapping is left past the end of a store closed before
+ * it was full.
+ */
+public final class SampleStore implements Closeable {
+
+    static final int MAGIC = 0x5353434D; // "MCSS" read as a little-endian int
+
+    static final int VERSION = 1; // Bumped when the layout changes
+
+    static final int HEADER_BYTES = 64; // Bytes before the first point
+
+    static final int POINT_BYTES = 2 * Double.BYTES; // x and y
+
+    static final int WINDOW_POINTS = 1 << 26; // Points per mapping, 1 GB
+
+    static final int SLICE_POINTS = 1 << 16; // Points replayed per task, like ParallelMonteCarlo.BLOCK_SIZE
+
+    /**
+     * Where the points of a store come from. New generators are only ever
+     * added at the end, the ordinal is what the file records.
+     */
+    public enum Generator {
+        BLOCKS, // The seeded blocks of ParallelMonteCarlo, see BlockSampler
+        SOBOL,
+        HALTON,
+        OTHER
+    }
+
+    private final FileChannel channel;
+    private final Generator generator;
+    private final long seed;
+    private final double leftBound;
+    private final double rightBound;
+    private final double min;
+    private final double max;
+    private final long size;
+    private final DoubleBuffer[] windows; // Read-only views of the points
+
+    private SampleStore(FileChannel channel, ByteBuffer header) throws IOException {
+        this.channel = channel;
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a sample store");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported sample store version: " + header.getInt(4));
+        }
+        int generatorIndex = header.getInt(8);
+        if (generatorIndex < 0 || generatorIndex >= Generator.values().length) {
+            throw new IOException("Unknown generator: " + generatorIndex);
+        }
+        generator = Generator.values()[generatorIndex];
+        seed = header.getLong(16);
+        leftBound = header.getDouble(24);
+        rightBound = header.getDouble(32);
+        min = header.getDouble(40);
+        max = header.getDouble(48);
+        size = header.getLong(56);
+        if (size < 0 || channel.size() < HEADER_BYTES + size * POINT_BYTES) {
+            throw new IOException("Sample store is truncated: " + size + " points in " + channel.size() + " bytes");
+        }
+
+        windows = new DoubleBuffer[(int) ((size + WINDOW_POINTS - 1) / WINDOW_POINTS)];
+        for (int w = 0; w < windows.length; w++) {
+            long first = (long) w * WINDOW_POINTS;
+            long points = Math.min(WINDOW_POINTS, size - first);
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * POINT_BYTES, points * POINT_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Opens a store for replaying
+     *
+     * @param path the file
+     * @return the store, to be closed
+     * @throws IOException if the file can't be read or isn't a valid store
+     */
+    public static SampleStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Not a sample store");
+                }
+            }
+            return new SampleStore(channel, header);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a store and writes the points Integrator.plotPoints would draw
+     * for the seed, without keeping them on the heap
+     *
+     * @param path the file, replaced if it exists
+     * @param leftBound minimum x value of the points
+     * @param rightBound maximum x value of the points
+     * @param min minimum value of the function on the interval
+     * @param max maximum value of the function on the interval
+     * @param numPoints the number of points
+     * @param seed the seed, the same as Integrator.plotPoints would be given
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, double leftBound, double rightBound, double min, double max, long numPoints, long seed)
+            throws IOException {
+        double bottom = Integrator.clampMin(min, max);
+        double height = Integrator.clampMax(min, max) - bottom;
+        double width = rightBound - leftBound;
+        PointSampler sampler = new BlockSampler(seed);
+        double[] point = new double[2];
+
+        try (Writer writer = create(path, Generator.BLOCKS, seed, leftBound, rightBound, min, max, numPoints)) {
+            for (long i = 0; i < numPoints; i++) {
+                sampler.next(point);
+                writer.append(leftBound + point[0] * width, bottom + point[1] * height);
+            }
+        }
+    }
+
+    /**
+     * Creates a store to append points to as they are sampled
+     *
+     * @param path the file, replaced if it exists
+     * @param generator where the points come from
+     * @param seed the seed of the generator
+     * @param leftBound minimum x value of the points
+     * @param rightBound maximum x value of the points
+     * @param min minimum value of the function on the interval
+     * @param max maximum value of the function on the interval
+     * @param capacity the most points that will be appended
+     * @return the writer, the store is complete once it is closed
+     * @throws IOException if the file can't be created
+     */
+    public static Writer create(Path path, Generator generator, long seed, double leftBound, double rightBound, double min, double max,
+            long capacity) throws IOException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, generator.ordinal()).putInt(12, 0).putLong(16, seed)
+                .putDouble(24, leftBound).putDouble(32, rightBound).putDouble(40, min).putDouble(48, max).putLong(56, 0);
+        return new Writer(channel, header, capacity);
+    }
+
+    /**
+     * Appends points to a new store, SLICE_POINTS at a time through the
+     * channel. The file only grows as far as the points written, and the
+     * number of points is only written to the header on close, so a store
+     * that wasn't closed reads as empty rather than holding garbage.
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer header;
+        private final long capacity;
+        private final ByteBuffer pending; // Points appended since the last write
+        private long size;
+        private long reserved; // End of the range handed out by reserve, size when there is none
+
+        private Writer(FileChannel channel, ByteBuffer header, long capacity) throws IOException {
+            this.channel = channel;
+            this.header = header;
+            this.capacity = capacity;
+            pending = ByteBuffer.allocateDirect(SLICE_POINTS * POINT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            writeHeader();
+        }
+
+        /**
+         * Appends a point
+         *
+         * @param x the x coordinate
+         * @param y the y coordinate
+         * @throws IOException if the points can't be written
+         */
+        public void append(double x, double y) throws IOException {
+            if (size == capacity) {
+                throw new IllegalStateException("Sample store is full");
+            }
+            if (reserved > size) {
+                throw new IllegalStateException("Points " + size + " to " + reserved + " are reserved");
+            }
+            pending.putDouble(x).putDouble(y);
+            size++;
+            if (!pending.hasRemaining()) {
+                flush();
+            }
+        }
+
+        /**
+         * Makes room for points written with write, e.g. by blocks sampled in
+         * parallel. They only count in size() once commit says they were all
+         * written, so a run that fails half way leaves the points before the
+         * failure, never holes.
+         *
+         * @param count number of points
+         * @return index of the first point
+         * @throws IOException if the points appended so far can't be written
+         */
+        long reserve(long count) throws IOException {
+            if (reserved > size) {
+                throw new IllegalStateException("Points " + size + " to " + reserved + " are reserved");
+            }
+            if (count < 0 || count > capacity - size) {
+                throw new IllegalStateException("Sample store is full");
+            }
+            flush();
+            reserved = size + count;
+            return size;
+        }
+
+        /**
+         * Records that every reserved point before an index was written
+         *
+         * @param end index after the last point written, in the reserved range
+         */
+        void commit(long end) {
+            if (end < size || end > reserved) {
+                throw new IllegalArgumentException("Points up to " + end + " weren't reserved, " + size + " to " + reserved + " are");
+            }
+            size = end;
+        }
+
+        /**
+         * Writes points at their index in a range from reserve. Threads can
+         * write different points at the same time.
+         *
+         * @param index index of the first point
+         * @param xs x values
+         * @param ys y values
+         * @param count number of points
+         * @throws IOException if the points can't be written
+         */
+        void write(long index, double[] xs, double[] ys, int count) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(count * POINT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                bytes.putDouble(xs[i]).putDouble(ys[i]);
+            }
+            bytes.flip();
+            long position = HEADER_BYTES + index * POINT_BYTES;
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, position + bytes.position());
+            }
+        }
+
+        /**
+         * @return the number of points appended so far
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Writes the points left and records their number. Reserved points
+         * that were never committed are dropped.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.truncate(HEADER_BYTES + size * POINT_BYTES); // Nothing is mapped, so this is safe
+                header.putLong(56, size);
+                writeHeader();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+
+        /**
+         * Writes the pending points after the ones already in the file
+         */
+        private void flush() throws IOException {
+            pending.flip();
+            long position = HEADER_BYTES + (size - pending.remaining() / POINT_BYTES) * POINT_BYTES;
+            while (pending.hasRemaining()) {
+                channel.write(pending, position + pending.position());
+            }
+            pending.clear();
+        }
+
+        private void writeHeader() throws IOException {
+            ByteBuffer bytes = header.duplicate();
+            bytes.clear();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, bytes.position());
+            }
+        }
+    }
+
+    /**
+     * Copies a range of the points to the heap, e.g. the part of a large
+     * store that is drawn
+     *
+     * @param from index of the first point
+     * @param count number of points
+     * @return the points, with room for inside/outside flags
+     */
+    public PointBuffer read(long from, int count) {
+        if (from < 0 || count < 0 || from + count > size) {
+            throw new IllegalArgumentException("Points " + from + " to " + (from + count) + " out of " + size);
+        }
+        PointBuffer points = new PointBuffer(count, true);
+        double[] pairs = new double[2 * BatchFunction.CHUNK_SIZE];
+        for (long start = from; start < from + count; ) {
+            int length = readPairs(start, pairs, (int) Math.min(BatchFunction.CHUNK_SIZE, from + count - start));
+            for (int i = 0; i < length; i++) {
+                points.add(pairs[2 * i], pairs[2 * i + 1]);
+            }
+            start += length;
+        }
+        return points;
+    }
+
+    /**
+     * Hit-or-miss estimate of the stored points, read straight from the
+     * mapped file in parallel. Slices are combined in order, so the result
+     * doesn't depend on the number of threads.
+     *
+     * @param function the function, must be thread-safe
+     * @return the estimator of every point
+     */
+    MonteCarloEstimator estimateMonteCarlo(BatchFunction function) {
+        double rectArea = getRectArea();
+        long slices = (size + SLICE_POINTS - 1) / SLICE_POINTS;
+        MonteCarloEstimator[] estimators = LongStream.range(0, slices).parallel()
+                .mapToObj(slice -> estimateSlice(function, slice * SLICE_POINTS, Math.min(size, (slice + 1) * SLICE_POINTS), rectArea))
+                .toArray(MonteCarloEstimator[]::new);
+
+        MonteCarloEstimator estimator = new MonteCarloEstimator();
+        for (MonteCarloEstimator slice : estimators) {
+            estimator.combine(slice);
+        }
+        return estimator;
+    }
+
+    private MonteCarloEstimator estimateSlice(BatchFunction function, long from, long to, double rectArea) {
+        double[] pairs = new double[2 * BatchFunction.CHUNK_SIZE];
+        double[] values = new double[BatchFunction.CHUNK_SIZE];
+        long positive = 0;
+        long negative = 0;
+
+        for (long start = from; start < to; ) {
+            int length = readPairs(start, pairs, (int) Math.min(BatchFunction.CHUNK_SIZE, to - start));
+            for (int i = 0; i < length; i++) {
+                values[i] = pairs[2 * i];
+            }
+            function.evaluate(values, values, 0, length); // f(x) replaces x in place
+
+            for (int i = 0; i < length; i++) {
+                int hit = Integrator.hit(values[i], pairs[2 * i + 1]);
+                if (hit > 0) {
+                    positive++;
+                } else if (hit < 0) {
+                    negative++;
+                }
+            }
+            start += length;
+        }
+        return MonteCarloEstimator.ofHits(to - from, positive, negative, rectArea);
+    }
+
+    /**
+     * Reads consecutive points as x, y pairs, stopping at the end of a window
+     *
+     * @return the number of points read
+     */
+    private int readPairs(long from, double[] pairs, int count) {
+        int window = (int) (from / WINDOW_POINTS);
+        int offset = (int) (from % WINDOW_POINTS);
+        int length = Math.min(count, WINDOW_POINTS - offset);
+        DoubleBuffer view = windows[window].duplicate(); // Own position, so slices can read in parallel
+        view.position(2 * offset);
+        view.get(pairs, 0, 2 * length);
+        return length;
+    }
+
+    public Generator getGenerator() {
+        return generator;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public double getLeftBound() {
+        return leftBound;
+    }
+
+    public double getRightBound() {
+        return rightBound;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the number of points stored
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the area of the rectangle the points were thrown in
+     */
+    public double getRectArea() {
+        return Integrator.rectangleArea(leftBound, rightBound, min, max);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
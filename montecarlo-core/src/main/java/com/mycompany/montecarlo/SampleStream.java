@@ -0,0 +1,230 @@
+package com.mycompany.montecarlo;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Hit-or-miss sample points of one function on one interval that grow with the
+ * number of points instead of being redrawn.
+ *
+ * The points are the stream Integrator.plotPoints draws for the seed of the stream,
+ * so the first n points are always the same ones whatever n is. Raising n only
+ * draws and evaluates the new points. Lowering it uses a prefix of the points
+ * already evaluated, without evaluating anything.
+ *
+ * Hit counts are kept at every SEGMENT points, so the estimator of any prefix
+ * costs at most one segment of flag lookups.
+ */
+public final class SampleStream {
+
+    static final int SEGMENT = 4096; // Points between two saved hit counts
+
+    private final String equation;
+    private final double leftBound;
+    private final double rightBound;
+    private final double bottom; // Bounding rectangle of the points
+    private final double top;
+    private final double rectArea;
+    private final long seed;
+
+    private final PointSampler sampler; // The blocks of ParallelMonteCarlo, in order
+    private final PointBuffer points = new PointBuffer(0, true); // Every point drawn so far
+
+    private int evaluated; // The points below this index have their inside flag set
+    private long positive; // Hits above the x-axis among the evaluated points
+    private long negative; // Hits below the x-axis among the evaluated points
+    private long[] positiveBefore = new long[16]; // positiveBefore[s] = positive hits among the first s * SEGMENT points
+    private long[] negativeBefore = new long[16];
+
+    /**
+     * @param equation the equation the points are for
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param min minimum value of the function on the interval
+     * @param max maximum value of the function on the interval
+     * @param seed the seed, the same as Integrator.plotPoints would be given
+     */
+    public SampleStream(String equation, double leftBound, double rightBound, double min, double max, long seed) {
+        this.equation = equation;
+        this.leftBound = leftBound;
+        this.rightBound = rightBound;
+        this.bottom = Integrator.clampMin(min, max);
+        this.top = Integrator.clampMax(min, max);
+        this.rectArea = Integrator.rectangleArea(leftBound, rightBound, min, max);
+        this.seed = seed;
+        this.sampler = new BlockSampler(seed);
+    }
+
+    /**
+     * @param equation the equation
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @return whether the points of this stream are for that function and
+     * interval
+     */
+    public boolean isFor(String equation, double leftBound, double rightBound) {
+        return this.equation.equals(equation) && this.leftBound == leftBound && this.rightBound == rightBound;
+    }
+
+    /**
+     * Draws points until there are at least n
+     *
+     * @param n the number of points needed
+     */
+    public void generate(int n) {
+        double width = rightBound - leftBound;
+        double height = top - bottom;
+        double[] point = new double[2];
+
+        while (points.size() < n) {
+            sampler.next(point);
+            points.add(leftBound + point[0] * width, bottom + point[1] * height);
+        }
+    }
+
+    /**
+     * Appends the first n points to a sample store, so the stored set is the
+     * one the estimator of n points was computed on
+     *
+     * @param sink the store, created for Generator.BLOCKS with the seed of
+     * this stream and the same bounds and range
+     * @param n number of points, at most getEvaluated()
+     * @throws IOException if the points can't be written
+     */
+    public void write(SampleStore.Writer sink, int n) throws IOException {
+        if (n < 0 || n > evaluated) {
+            throw new IllegalArgumentException("Only " + evaluated + " points were evaluated, not " + n);
+        }
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        for (int i = 0; i < n; i++) {
+            sink.append(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Evaluates the function at the points up to n, drawing them first if
+     * needed. Points already evaluated are skipped.
+     *
+     * @param function the function to integrate
+     * @param n the number of points needed
+     */
+    public void evaluate(BatchFunction function, int n) {
+        generate(n);
+        if (evaluated < n) {
+            BitSet inside = new BitSet(n - evaluated);
+            Integrator.estimateMonteCarlo(function, rectArea, points, evaluated, n, inside);
+            record(evaluated, n, inside);
+        }
+    }
+
+    /**
+     * Records the inside flags of the next evaluated points. Points must be
+     * recorded in order.
+     *
+     * @param from index of the first point, must be getEvaluated()
+     * @param to index after the last point
+     * @param inside bit i is whether point from + i is inside the area
+     */
+    public void record(int from, int to, BitSet inside) {
+        if (from != evaluated || to > points.size()) {
+            throw new IllegalArgumentException("Points " + from + " to " + to + " can't be recorded after " + evaluated);
+        }
+        points.setInside(from, inside);
+
+        double[] ys = points.ys();
+        for (int i = from; i < to; i++) {
+            if (i % SEGMENT == 0) {
+                saveCounts(i / SEGMENT);
+            }
+            if (inside.get(i - from)) {
+                if (ys[i] >= 0) { // Same sign rule as Integrator.hit
+                    positive++;
+                } else {
+                    negative++;
+                }
+            }
+        }
+        evaluated = to;
+    }
+
+    private void saveCounts(int segment) {
+        if (segment == positiveBefore.length) {
+            positiveBefore = Arrays.copyOf(positiveBefore, segment * 2);
+            negativeBefore = Arrays.copyOf(negativeBefore, segment * 2);
+        }
+        positiveBefore[segment] = positive;
+        negativeBefore[segment] = negative;
+    }
+
+    /**
+     * @param n number of points, at most getEvaluated()
+     * @return the hit-or-miss estimator of the first n points
+     */
+    public MonteCarloEstimator estimator(int n) {
+        if (n < 0 || n > evaluated) {
+            throw new IllegalArgumentException("Only " + evaluated + " points were evaluated, not " + n);
+        }
+        if (n == evaluated) {
+            return MonteCarloEstimator.ofHits(n, positive, negative, rectArea);
+        }
+        int segment = n / SEGMENT;
+        long pos = positiveBefore[segment];
+        long neg = negativeBefore[segment];
+        double[] ys = points.ys();
+        for (int i = segment * SEGMENT; i < n; i++) {
+            if (points.isInside(i)) {
+                if (ys[i] >= 0) {
+                    pos++;
+                } else {
+                    neg++;
+                }
+            }
+        }
+        return MonteCarloEstimator.ofHits(n, pos, neg, rectArea);
+    }
+
+    /**
+     * Copies the first n points, so they can be drawn while the stream keeps
+     * growing
+     *
+     * @param n number of points, at most getEvaluated()
+     * @return the points with their inside flags
+     */
+    public PointBuffer snapshot(int n) {
+        if (n < 0 || n > evaluated) {
+            throw new IllegalArgumentException("Only " + evaluated + " points were evaluated, not " + n);
+        }
+        PointBuffer copy = new PointBuffer(n, true);
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        for (int i = 0; i < n; i++) {
+            copy.add(xs[i], ys[i]);
+            copy.setInside(i, points.isInside(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Direct access to the points, for evaluating them in parallel. The
+     * buffer must only be read.
+     *
+     * @return every point drawn so far
+     */
+    public PointBuffer points() {
+        return points;
+    }
+
+    public int getEvaluated() {
+        return evaluated;
+    }
+
+    public double getRectArea() {
+        return rectArea;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,349 @@
+package com.mycompany.montecarlo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Finds where a function isn't continuous on an interval: poles, regions where
+ * it is undefined (NaN), jumps and points where it can't be evaluated.
+ *
+ * The function is first sampled on a coarse grid of COARSE_CELLS cells,
+ * whatever the width of the interval. Runs of grid points where f is NaN or
+ * infinite are reported as one region, their edges located by bisection. A
+ * cell whose change |f(b) - f(a)| is far above the typical change of the grid
+ * (and the cells next to it, for poles of even order that fall between two
+ * grid points with the same sign) is then bisected recursively.
+ *
+ * Bisection tells singular cells from steep ones with the variation of f on
+ * the two halves of a cell. For a smooth function it halves with the width,
+ * for a jump it stays the same and near a pole it grows, so a half is only
+ * split further while its variation is at least KEEP_RATIO times the one of
+ * its parent, or |f| at its ends grew (its end in the middle of the parent
+ * fell next to a pole). A cell that keeps its variation until it can't be
+ * split any more holds a pole if |f| grew on the way. It holds a jump if the
+ * change across the last bracket is still at least JUMP_RATIO times the
+ * variation of the bracket JUMP_LEVELS splits earlier. Steep but continuous
+ * functions like x^0.25 at 0 also keep 2^-0.25 of their variation on every
+ * split, but that adds up to a factor 2^-8 over JUMP_LEVELS splits, so they
+ * aren't reported.
+ *
+ * The brackets of the singularities are a few ulps wide for poles and jumps,
+ * so an integrator can split the interval around them.
+ */
+public final class Singularities {
+
+    static final int COARSE_CELLS = 4096; // Cells of the first grid
+
+    static final double FLAG_FACTOR = 8; // A cell changing this many times more than the median is bisected
+
+    static final double KEEP_RATIO = 0.75; // Smooth halves have about 0.5 of the variation of their parent
+
+    static final int MAX_DEPTH = 64; // Bisections of one coarse cell
+
+    static final long MAX_EVALUATIONS = 1 << 16; // Evaluations spent bisecting, on top of the grid
+
+    static final double POLE_GROWTH = 2; // |f| must grow this much while bisecting for a pole
+
+    static final int JUMP_LEVELS = 32; // How far up the bisection the variation a jump must keep is taken
+
+    static final double JUMP_RATIO = 0.25; // A jump keeps at least half its size, x^p loses all but 2^(-32p) of it
+
+    static final int MERGE_ULPS = 8; // Brackets this close are the same singularity, found from both sides
+
+    /**
+     * What is wrong with the function at a singularity
+     */
+    public enum Kind {
+        POLE, JUMP, UNDEFINED, ERROR
+    }
+
+    /**
+     * One singularity, located between two x values
+     */
+    public static final class Singularity {
+
+        private final Kind kind;
+        private final double left;
+        private final double right;
+
+        Singularity(Kind kind, double left, double right) {
+            this.kind = kind;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the left end of the bracket, f is fine just left of it
+         */
+        public double getLeft() {
+            return left;
+        }
+
+        /**
+         * @return the right end of the bracket, f is fine just right of it
+         */
+        public double getRight() {
+            return right;
+        }
+
+        /**
+         * @return the middle of the bracket
+         */
+        public double getLocation() {
+            return 0.5 * (left + right);
+        }
+
+        @Override
+        public String toString() {
+            return left == right ? kind + " at " + left : kind + " on [" + left + ", " + right + "]";
+        }
+    }
+
+    private Singularities() {
+    }
+
+    /**
+     * Finds the singularities of a function on an interval
+     *
+     * @param function the function
+     * @param leftBound the left bound of the interval
+     * @param rightBound the right bound of the interval
+     * @return the singularities from left to right, empty if the function is
+     * continuous on the interval. The search stops at the first point where
+     * the function throws, which is reported as an ERROR
+     */
+    public static List<Singularity> find(DoubleUnaryOperator function, double leftBound, double rightBound) {
+        if (!(leftBound < rightBound)) {
+            throw new IllegalArgumentException("Lower bound must be strictly less than upper bound");
+        }
+        return new Search(BatchFunction.of(function)).run(leftBound, rightBound);
+    }
+
+    /**
+     * State of one search
+     */
+    private static final class Search {
+
+        private final BatchFunction function;
+        private final List<Singularity> found = new ArrayList<>();
+        private long evaluations;
+        private boolean failed; // An evaluation threw, nothing else is looked at
+        private double floor; // Variations below this are rounding noise
+        private double cellMagnitude; // Largest |f| at the ends of the coarse cell being bisected
+        private final double[] variations = new double[MAX_DEPTH]; // variations[d] = variation of the bracket at depth d being bisected
+
+        Search(BatchFunction function) {
+            this.function = function;
+        }
+
+        List<Singularity> run(double leftBound, double rightBound) {
+            int cells = COARSE_CELLS;
+            double dx = (rightBound - leftBound) / cells;
+            double[] xs = new double[cells + 1];
+            for (int i = 0; i <= cells; i++) {
+                xs[i] = (i == cells) ? rightBound : leftBound + i * dx;
+            }
+            double[] ys = grid(xs);
+            if (failed) {
+                return found;
+            }
+
+            double scale = 0;
+            for (double y : ys) {
+                if (Double.isFinite(y)) {
+                    scale = Math.max(scale, Math.abs(y));
+                }
+            }
+            floor = Math.max(Double.MIN_NORMAL, 1e-12 * scale);
+
+            undefinedRuns(xs, ys);
+            if (!failed) {
+                suspiciousCells(xs, ys);
+            }
+            return merged();
+        }
+
+        /**
+         * Evaluates the grid in chunks, point by point if a chunk throws so the
+         * first failing point is the one reported
+         */
+        private double[] grid(double[] xs) {
+            double[] ys = new double[xs.length];
+            for (int start = 0; start < xs.length && !failed; start += BatchFunction.CHUNK_SIZE) {
+                int end = Math.min(xs.length, start + BatchFunction.CHUNK_SIZE);
+                try {
+                    function.evaluate(xs, ys, start, end);
+                } catch (Exception e) {
+                    for (int i = start; i < end && !failed; i++) {
+                        ys[i] = value(xs[i]);
+                    }
+                }
+            }
+            return ys;
+        }
+
+        private double value(double x) {
+            evaluations++;
+            try {
+                return function.applyAsDouble(x);
+            } catch (Exception e) {
+                found.add(new Singularity(Kind.ERROR, x, x));
+                failed = true;
+                return Double.NaN;
+            }
+        }
+
+        /**
+         * Reports every run of grid points where f is NaN or infinite
+         */
+        private void undefinedRuns(double[] xs, double[] ys) {
+            int i = 0;
+            while (i < xs.length && !failed) {
+                if (Double.isFinite(ys[i])) {
+                    i++;
+                    continue;
+                }
+                int first = i;
+                boolean infinite = true;
+                while (i < xs.length && !Double.isFinite(ys[i])) {
+                    infinite &= Double.isInfinite(ys[i]);
+                    i++;
+                }
+                int last = i - 1;
+                double left = first == 0 ? xs[0] : edge(xs[first - 1], xs[first]);
+                double right = last == xs.length - 1 ? xs[last] : edge(xs[last + 1], xs[last]);
+                found.add(new Singularity(infinite ? Kind.POLE : Kind.UNDEFINED, left, right));
+            }
+        }
+
+        /**
+         * Bisects between a point where f is finite and one where it isn't
+         *
+         * @return the last x found where f isn't finite, next to the finite
+         * side
+         */
+        private double edge(double fine, double bad) {
+            for (int depth = 0; depth < MAX_DEPTH && !failed; depth++) {
+                double middle = 0.5 * (fine + bad);
+                if (middle == fine || middle == bad) {
+                    break;
+                }
+                if (Double.isFinite(value(middle))) {
+                    fine = middle;
+                } else {
+                    bad = middle;
+                }
+            }
+            return bad;
+        }
+
+        /**
+         * Bisects the cells changing much more than the median cell, and their
+         * neighbours
+         */
+        private void suspiciousCells(double[] xs, double[] ys) {
+            int cells = xs.length - 1;
+            double[] changes = new double[cells];
+            int finite = 0;
+            for (int i = 0; i < cells; i++) {
+                changes[i] = Math.abs(ys[i + 1] - ys[i]);
+                if (Double.isFinite(changes[i])) {
+                    finite++;
+                }
+            }
+            double[] sorted = Arrays.copyOf(changes, cells);
+            Arrays.sort(sorted); // NaN sort last
+            double threshold = Math.max(floor, FLAG_FACTOR * (finite == 0 ? 0 : sorted[finite / 2]));
+
+            boolean[] suspicious = new boolean[cells];
+            for (int i = 0; i < cells; i++) {
+                if (Double.isFinite(changes[i]) && changes[i] > threshold) {
+                    for (int j = Math.max(0, i - 1); j <= Math.min(cells - 1, i + 1); j++) {
+                        suspicious[j] = true;
+                    }
+                }
+            }
+
+            for (int i = 0; i < cells && !failed; i++) {
+                if (suspicious[i] && Double.isFinite(changes[i]) && evaluations < MAX_EVALUATIONS) {
+                    cellMagnitude = Math.max(Math.abs(ys[i]), Math.abs(ys[i + 1]));
+                    bisect(xs[i], ys[i], xs[i + 1], ys[i + 1], Double.NaN, cellMagnitude, 0);
+                }
+            }
+        }
+
+        /**
+         * Splits a cell in two and keeps bisecting the halves that don't get
+         * smoother
+         *
+         * @param parentVariation variation of the parent cell, NaN for a
+         * coarse cell which is always split
+         * @param parentMagnitude largest |f| at the ends of the parent cell
+         */
+        private void bisect(double left, double fLeft, double right, double fRight, double parentVariation, double parentMagnitude,
+                int depth) {
+            double middle = 0.5 * (left + right);
+            if (middle == left || middle == right || depth == MAX_DEPTH) {
+                // Can't be split any further and it never got smoother
+                double change = Math.abs(fRight - fLeft);
+                if (Math.max(Math.abs(fLeft), Math.abs(fRight)) > POLE_GROWTH * cellMagnitude) {
+                    found.add(new Singularity(Kind.POLE, left, right));
+                } else if (change > floor && change >= JUMP_RATIO * variations[Math.max(0, depth - JUMP_LEVELS)]) {
+                    found.add(new Singularity(Kind.JUMP, left, right));
+                }
+                return; // Otherwise the change faded away on the way down, steep but continuous
+            }
+            if (evaluations >= MAX_EVALUATIONS) {
+                return; // Out of budget, assume it's fine rather than reject a good function
+            }
+
+            double fMiddle = value(middle);
+            if (failed) {
+                return;
+            }
+            if (!Double.isFinite(fMiddle)) {
+                found.add(new Singularity(Double.isInfinite(fMiddle) ? Kind.POLE : Kind.UNDEFINED, edge(left, middle), edge(right, middle)));
+                return;
+            }
+
+            // A midpoint right next to a pole inflates the variation of its cell, but then |f| also grew at the ends of the half
+            double variation = Math.abs(fMiddle - fLeft) + Math.abs(fRight - fMiddle);
+            double endMagnitude = Math.max(Math.abs(fLeft), Math.abs(fRight));
+            boolean grew = endMagnitude > POLE_GROWTH * parentMagnitude;
+            if (variation <= floor || (variation < KEEP_RATIO * parentVariation && !grew)) {
+                return; // Smooth at this scale
+            }
+            variations[depth] = variation;
+            bisect(left, fLeft, middle, fMiddle, variation, endMagnitude, depth + 1);
+            if (!failed) {
+                bisect(middle, fMiddle, right, fRight, variation, endMagnitude, depth + 1);
+            }
+        }
+
+        /**
+         * Sorts the singularities and merges the ones found twice, from two
+         * neighbouring cells or from both sides of a pole
+         */
+        private List<Singularity> merged() {
+            found.sort(Comparator.comparingDouble(Singularity::getLeft));
+            List<Singularity> merged = new ArrayList<>();
+            for (Singularity next : found) {
+                Singularity last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && next.left <= last.right + MERGE_ULPS * Math.ulp(last.right)) {
+                    Kind kind = next.kind.compareTo(last.kind) > 0 ? next.kind : last.kind; // Keep the worst
+                    merged.set(merged.size() - 1, new Singularity(kind, last.left, Math.max(last.right, next.right)));
+                } else {
+                    merged.add(next);
+                }
+            }
+            return merged;
+        }
+    }
+}
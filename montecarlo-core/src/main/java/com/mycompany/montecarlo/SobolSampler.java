@@ -0,0 +1,86 @@
+package com.mycompany.montecarlo;
+
+import java.util.SplittableRandom;
+
+/**
+ * Two dimensional scrambled Sobol sequence.
+ *
+ * Points are generated in Gray code order with 32 bit direction numbers (first
+ * dimension: van der Corput, second dimension: primitive polynomial x + 1).
+ * Each dimension is randomized with a random lower triangular matrix scramble
+ * followed by a random digital shift. Both keep the (t, m, s)-net structure of
+ * the sequence, and every seed gives an independent randomization, which is
+ * what the error estimate of QuasiMonteCarlo relies on.
+ */
+public final class SobolSampler implements PointSampler {
+
+    private static final int BITS = 32;
+
+    private static final double SCALE = 1.0 / (1L << BITS); // Turns a 32 bit integer into [0, 1)
+
+    private final int[][] directions = new int[2][BITS]; // Scrambled direction numbers of each dimension
+    private final int[] current = new int[2]; // Current point as 32 bit fractions
+    private long index; // Index of the next point
+
+    /**
+     * @param seed the scrambling seed
+     */
+    public SobolSampler(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        int[][] raw = new int[2][BITS];
+        for (int k = 0; k < BITS; k++) {
+            raw[0][k] = 1 << (BITS - 1 - k);
+            raw[1][k] = (k == 0) ? 1 << (BITS - 1) : raw[1][k - 1] ^ (raw[1][k - 1] >>> 1);
+        }
+
+        for (int dim = 0; dim < 2; dim++) {
+            int[] scramble = randomLowerTriangular(random);
+            for (int k = 0; k < BITS; k++) {
+                directions[dim][k] = multiply(scramble, raw[dim][k]);
+            }
+            current[dim] = random.nextInt(); // Digital shift, applied once to the starting point
+        }
+    }
+
+    @Override
+    public void next(double[] point) {
+        if (index >= (1L << BITS)) {
+            throw new IllegalStateException("Sobol sequence exhausted");
+        }
+        point[0] = Integer.toUnsignedLong(current[0]) * SCALE;
+        point[1] = Integer.toUnsignedLong(current[1]) * SCALE;
+
+        // Gray code step: flip the direction number of the lowest zero bit of the index
+        int bit = Long.numberOfTrailingZeros(~index);
+        current[0] ^= directions[0][bit];
+        current[1] ^= directions[1][bit];
+        index++;
+    }
+
+    /**
+     * Random lower triangular binary matrix with ones on the diagonal. Row i is
+     * stored as a bit mask over digits 0..i, digit j being bit (31 - j).
+     */
+    private static int[] randomLowerTriangular(SplittableRandom random) {
+        int[] rows = new int[BITS];
+        for (int i = 0; i < BITS; i++) {
+            int below = (i == 0) ? 0 : random.nextInt() & (-1 << (BITS - i)); // Random digits 0..i-1
+            rows[i] = below | (1 << (BITS - 1 - i));
+        }
+        return rows;
+    }
+
+    /**
+     * Multiplies a binary matrix by a digit vector over GF(2)
+     */
+    private static int multiply(int[] rows, int vector) {
+        int result = 0;
+        for (int i = 0; i < BITS; i++) {
+            if ((Integer.bitCount(rows[i] & vector) & 1) != 0) {
+                result |= 1 << (BITS - 1 - i);
+            }
+        }
+        return result;
+    }
+}
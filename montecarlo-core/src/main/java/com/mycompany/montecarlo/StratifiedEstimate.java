@@ -0,0 +1,69 @@
+package com.mycompany.montecarlo;
+
+/**
+ * Result of a variance reduced Monte Carlo run (stratified or Latin hypercube).
+ *
+ * Besides the estimate and its standard error it keeps the standard error plain
+ * uniform sampling would have had with the same number of points, estimated
+ * from the same samples, so the variance reduction can be reported.
+ */
+public final class StratifiedEstimate {
+
+    private final double estimate;
+    private final double standardError;
+    private final double uniformStandardError;
+    private final long count;
+
+    /**
+     * @param estimate the estimate of the integral
+     * @param standardError the standard error of the estimate
+     * @param uniformStandardError estimated standard error of plain uniform
+     * sampling with the same number of points
+     * @param count number of points used
+     */
+    public StratifiedEstimate(double estimate, double standardError, double uniformStandardError, long count) {
+        this.estimate = estimate;
+        this.standardError = standardError;
+        this.uniformStandardError = uniformStandardError;
+        this.count = count;
+    }
+
+    public double getEstimate() {
+        return estimate;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    public double getHalfWidth() {
+        return MonteCarloEstimator.Z_95 * standardError;
+    }
+
+    public double getUniformStandardError() {
+        return uniformStandardError;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return how many times smaller the variance is than with plain uniform
+     * sampling at the same N (1 means no gain)
+     */
+    public double getVarianceReduction() {
+        if (standardError == 0) {
+            return uniformStandardError == 0 ? 1 : Double.POSITIVE_INFINITY;
+        }
+        return (uniformStandardError * uniformStandardError) / (standardError * standardError);
+    }
+
+    /**
+     * @return e.g. "21.3342 ± 0.0211 (variance ÷11)"
+     */
+    @Override
+    public String toString() {
+        return String.format("%.6g ± %.2g (variance ÷%.3g)", estimate, getHalfWidth(), getVarianceReduction());
+    }
+}
@@ -0,0 +1,345 @@
+package com.mycompany.montecarlo;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Hit-or-miss Monte Carlo with stratified or Latin hypercube sampling.
+ *
+ * Stratified sampling cuts [leftBound, rightBound] into K strata of equal width
+ * and draws a fixed number of points in each, which removes the clumps and gaps
+ * of plain uniform sampling. Points can be allocated to the strata in
+ * proportion to their width, or Neyman-optimally in proportion to the standard
+ * deviation measured by a small pilot run in each stratum.
+ *
+ * Both estimators report the variance reduction they achieved compared to
+ * plain uniform sampling with the same number of points.
+ */
+public final class StratifiedMonteCarlo {
+
+    /**
+     * How points are shared between the strata
+     */
+    public enum Allocation {
+        PROPORTIONAL, NEYMAN
+    }
+
+    public static final int DEFAULT_STRATA = 32;
+
+    static final int PILOT_POINTS = 16; // Pilot points per stratum for Neyman allocation
+
+    static final int MIN_POINTS_PER_STRATUM = 2; // A stratum variance needs at least 2 points
+
+    static final int LHS_REPLICATES = 8; // Independent Latin hypercube designs used for the error estimate
+
+    private StratifiedMonteCarlo() {
+    }
+
+    /**
+     * Picks a number of strata that leaves every stratum enough points
+     *
+     * @param numPoints the total number of points
+     * @return the number of strata to use
+     */
+    public static int strataFor(int numPoints) {
+        return Math.max(1, Math.min(DEFAULT_STRATA, numPoints / (2 * PILOT_POINTS)));
+    }
+
+    /**
+     * Generates stratified points in the bounding rectangle. The x coordinate
+     * is stratified, the y coordinate is uniform.
+     *
+     * @param function the function, only evaluated for the Neyman pilot run
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param min minimum of the function on the range
+     * @param max maximum of the function on the range
+     * @param numPoints total number of points
+     * @param strata number of strata
+     * @param allocation how to share the points between the strata
+     * @param seed the random seed
+     * @return the points, grouped by stratum
+     */
+    public static PointBuffer plotPoints(DoubleUnaryOperator function, double leftBound, double rightBound, double min, double max,
+            int numPoints, int strata, Allocation allocation, long seed) {
+        if (strata < 1 || numPoints < strata * MIN_POINTS_PER_STRATUM) {
+            throw new IllegalArgumentException("Not enough points for " + strata + " strata");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        double bottom = Integrator.clampMin(min, max);
+        double height = Integrator.clampMax(min, max) - bottom;
+        double rectArea = Integrator.rectangleArea(leftBound, rightBound, min, max);
+        double width = rightBound - leftBound;
+        PointBuffer points = new PointBuffer(numPoints, true);
+
+        int[] counts;
+        if (allocation == Allocation.NEYMAN && numPoints >= strata * PILOT_POINTS * 2) {
+            // Pilot run, the pilot points are kept as part of the sample
+            double[] deviations = new double[strata];
+            PointBuffer pilot = new PointBuffer(strata * PILOT_POINTS, true);
+            for (int k = 0; k < strata; k++) {
+                MonteCarloEstimator stratum = new MonteCarloEstimator();
+                for (int i = 0; i < PILOT_POINTS; i++) {
+                    double x = stratumX(leftBound, width, strata, k, random.nextDouble());
+                    double y = bottom + random.nextDouble() * height;
+                    stratum.add(Integrator.hit(function.applyAsDouble(x), y) * rectArea);
+                    pilot.add(x, y);
+                }
+                deviations[k] = Math.sqrt(stratum.getVariance());
+            }
+            counts = allocate(deviations, numPoints - strata * PILOT_POINTS, 0);
+
+            // Merge pilot and main points stratum by stratum
+            for (int k = 0; k < strata; k++) {
+                for (int i = 0; i < PILOT_POINTS; i++) {
+                    points.add(pilot.getX(k * PILOT_POINTS + i), pilot.getY(k * PILOT_POINTS + i));
+                }
+                addStratumPoints(points, random, leftBound, width, strata, k, bottom, height, counts[k]);
+            }
+            return points;
+        }
+
+        double[] equal = new double[strata];
+        Arrays.fill(equal, 1.0);
+        counts = allocate(equal, numPoints, MIN_POINTS_PER_STRATUM);
+        for (int k = 0; k < strata; k++) {
+            addStratumPoints(points, random, leftBound, width, strata, k, bottom, height, counts[k]);
+        }
+        return points;
+    }
+
+    private static void addStratumPoints(PointBuffer points, SplittableRandom random, double leftBound, double width, int strata, int k,
+            double bottom, double height, int count) {
+        for (int i = 0; i < count; i++) {
+            points.add(stratumX(leftBound, width, strata, k, random.nextDouble()), bottom + random.nextDouble() * height);
+        }
+    }
+
+    /**
+     * The x at fraction u of stratum k, moved by a few ulps when rounding would
+     * make stratumOf put it in a neighbour, so every stratum keeps the points
+     * it was allocated
+     */
+    private static double stratumX(double leftBound, double width, int strata, int k, double u) {
+        double x = leftBound + (k + u) * (width / strata);
+        while (stratumOf(x, leftBound, width, strata) > k) {
+            x = Math.nextDown(x);
+        }
+        while (stratumOf(x, leftBound, width, strata) < k) {
+            x = Math.nextUp(x);
+        }
+        return x;
+    }
+
+    /**
+     * @return the index of the stratum holding x, as the estimator recovers it
+     */
+    static int stratumOf(double x, double leftBound, double width, int strata) {
+        return Math.max(0, Math.min(strata - 1, (int) ((x - leftBound) / width * strata)));
+    }
+
+    /**
+     * Shares total points in proportion to the weights (largest remainder
+     * rounding), giving every share at least minimum points
+     *
+     * @param weights non-negative weight of every stratum
+     * @param total the number of points to share
+     * @param minimum the minimum share of every stratum
+     * @return the number of points of every stratum, summing to total
+     */
+    static int[] allocate(double[] weights, int total, int minimum) {
+        int strata = weights.length;
+        double weightSum = 0;
+        for (double weight : weights) {
+            weightSum += weight;
+        }
+        if (!(weightSum > 0)) { // All strata look the same (or the pilot saw no variance), fall back to proportional
+            weights = new double[strata];
+            Arrays.fill(weights, 1.0);
+            weightSum = strata;
+        }
+
+        int[] counts = new int[strata];
+        double[] remainders = new double[strata];
+        int free = total - minimum * strata;
+        int assigned = 0;
+        for (int k = 0; k < strata; k++) {
+            double share = free * weights[k] / weightSum;
+            counts[k] = minimum + (int) Math.floor(share);
+            remainders[k] = share - Math.floor(share);
+            assigned += counts[k];
+        }
+        while (assigned < total) { // Hand out the rounding leftovers to the largest remainders
+            int best = 0;
+            for (int k = 1; k < strata; k++) {
+                if (remainders[k] > remainders[best]) {
+                    best = k;
+                }
+            }
+            counts[best]++;
+            remainders[best] = -1;
+            assigned++;
+        }
+        return counts;
+    }
+
+    /**
+     * Estimates the net area from stratified points. The stratum of each point
+     * is recovered from its x coordinate, so any allocation works.
+     *
+     * @param function the function to integrate
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param points the points from plotPoints
+     * @param strata the number of strata used to generate the points
+     * @return the estimate, its standard error and the variance reduction
+     */
+    public static StratifiedEstimate estimate(DoubleUnaryOperator function, double leftBound, double rightBound, PointBuffer points, int strata) {
+        return estimate(function, leftBound, rightBound, Integrator.getRange(function, leftBound, rightBound), points, strata);
+    }
+
+    /**
+     * Same as estimate() with the range of the function already known
+     *
+     * @param function the function to integrate
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param range {min, max} of the function the points were generated with
+     * @param points the points from plotPoints
+     * @param strata the number of strata used to generate the points
+     * @return the estimate, its standard error and the variance reduction
+     */
+    public static StratifiedEstimate estimate(DoubleUnaryOperator function, double leftBound, double rightBound, double[] range,
+            PointBuffer points, int strata) {
+        double rectArea = Integrator.rectangleArea(leftBound, rightBound, range[0], range[1]);
+        double width = rightBound - leftBound;
+
+        MonteCarloEstimator[] perStratum = new MonteCarloEstimator[strata];
+        for (int k = 0; k < strata; k++) {
+            perStratum[k] = new MonteCarloEstimator();
+        }
+
+        BatchFunction batch = BatchFunction.of(function);
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        double[] values = new double[BatchFunction.CHUNK_SIZE];
+        for (int start = 0; start < points.size(); start += values.length) {
+            int length = Math.min(values.length, points.size() - start);
+            System.arraycopy(xs, start, values, 0, length);
+            batch.evaluate(values, values, 0, length);
+
+            for (int j = 0; j < length; j++) {
+                int i = start + j;
+                int k = stratumOf(xs[i], leftBound, width, strata);
+                int hit = Integrator.hit(values[j], ys[i]);
+                perStratum[k].add(hit * rectArea);
+                points.setInside(i, hit != 0);
+            }
+        }
+
+        // Every stratum covers 1/strata of the interval
+        double weight = 1.0 / strata;
+        double estimate = 0;
+        double variance = 0;
+        double withinVariance = 0;
+        for (MonteCarloEstimator stratum : perStratum) {
+            estimate += weight * stratum.getEstimate();
+            variance += weight * weight * stratum.getVariance() / stratum.getCount();
+            withinVariance += weight * stratum.getVariance();
+        }
+
+        // Variance of a single uniform point = mean within-stratum variance + variance of the stratum means
+        double betweenVariance = 0;
+        for (MonteCarloEstimator stratum : perStratum) {
+            double delta = stratum.getEstimate() - estimate;
+            betweenVariance += weight * delta * delta;
+        }
+        double uniformVariance = (withinVariance + betweenVariance) / points.size();
+
+        return new StratifiedEstimate(estimate, Math.sqrt(variance), Math.sqrt(uniformVariance), points.size());
+    }
+
+    /**
+     * Generates LHS_REPLICATES consecutive independent Latin hypercube designs
+     * in the bounding rectangle
+     *
+     * @param leftBound minimum x value for any generated point
+     * @param rightBound maximum x value for any generated point
+     * @param min minimum of the function on the range
+     * @param max maximum of the function on the range
+     * @param numPoints the total number of points
+     * @param seed the random seed
+     * @return the points, with room for inside/outside flags
+     */
+    public static PointBuffer latinHypercubePoints(double leftBound, double rightBound, double min, double max, int numPoints, long seed) {
+        PointBuffer points = new PointBuffer(numPoints, true);
+        SplittableRandom seeds = new SplittableRandom(seed);
+        int replicates = lhsReplicates(numPoints);
+
+        for (int r = 0; r < replicates; r++) {
+            int length = lhsStart(r + 1, numPoints) - lhsStart(r, numPoints);
+            Integrator.addPoints(points, leftBound, rightBound, min, max, length, new LatinHypercubeSampler(length, seeds.nextLong()));
+        }
+        return points;
+    }
+
+    /**
+     * Estimates the net area from points made by latinHypercubePoints. The
+     * error comes from the spread between the independent designs.
+     *
+     * @param function the function to integrate
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param points the points from latinHypercubePoints
+     * @return the estimate, its standard error and the variance reduction
+     */
+    public static StratifiedEstimate estimateLatinHypercube(DoubleUnaryOperator function, double leftBound, double rightBound, PointBuffer points) {
+        return estimateLatinHypercube(function, leftBound, rightBound, Integrator.getRange(function, leftBound, rightBound), points);
+    }
+
+    /**
+     * Same as estimateLatinHypercube() with the range of the function already
+     * known
+     *
+     * @param function the function to integrate
+     * @param leftBound left bound of integration
+     * @param rightBound right bound of integration
+     * @param range {min, max} of the function the points were generated with
+     * @param points the points from latinHypercubePoints
+     * @return the estimate, its standard error and the variance reduction
+     */
+    public static StratifiedEstimate estimateLatinHypercube(DoubleUnaryOperator function, double leftBound, double rightBound, double[] range,
+            PointBuffer points) {
+        double rectArea = Integrator.rectangleArea(leftBound, rightBound, range[0], range[1]);
+        int replicates = lhsReplicates(points.size());
+
+        MonteCarloEstimator designs = new MonteCarloEstimator(); // One sample per design
+        MonteCarloEstimator pooled = new MonteCarloEstimator(); // Every point, as if sampled uniformly
+        double[] ys = points.ys();
+        double[] values = new double[points.size()];
+        BatchFunction.of(function).evaluate(points.xs(), values, 0, points.size());
+
+        for (int r = 0; r < replicates; r++) {
+            MonteCarloEstimator design = new MonteCarloEstimator();
+            for (int i = lhsStart(r, points.size()); i < lhsStart(r + 1, points.size()); i++) {
+                int hit = Integrator.hit(values[i], ys[i]);
+                design.add(hit * rectArea);
+                pooled.add(hit * rectArea);
+                points.setInside(i, hit != 0);
+            }
+            designs.add(design.getEstimate());
+        }
+
+        double uniformError = Math.sqrt(pooled.getVariance() / points.size());
+        return new StratifiedEstimate(designs.getEstimate(), designs.getStandardError(), uniformError, points.size());
+    }
+
+    private static int lhsReplicates(int numPoints) {
+        return Math.max(1, Math.min(LHS_REPLICATES, numPoints / 2));
+    }
+
+    private static int lhsStart(int replicate, int numPoints) {
+        return (int) ((long) replicate * numPoints / lhsReplicates(numPoints));
+    }
+}
@@ -0,0 +1,6 @@
+module com.mycompany.montecarlo.core {
+    requires exp4j;
+    requires jdk.management;
+    requires jdk.jfr;
+    exports com.mycompany.montecarlo;
+}
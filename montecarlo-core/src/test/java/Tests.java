@@ -0,0 +1,1164 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+import com.mycompany.montecarlo.BatchFunction;
+import com.mycompany.montecarlo.BatchRunner;
+import com.mycompany.montecarlo.ExpressionCompiler;
+import com.mycompany.montecarlo.GaussKronrod;
+import com.mycompany.montecarlo.ImportanceSampling;
+import com.mycompany.montecarlo.Integrator;
+import com.mycompany.montecarlo.LruCache;
+import com.mycompany.montecarlo.MonteCarloEstimator;
+import com.mycompany.montecarlo.ParallelMonteCarlo;
+import com.mycompany.montecarlo.PerformanceMonitor;
+import com.mycompany.montecarlo.PointBuffer;
+import com.mycompany.montecarlo.PointSampler;
+import com.mycompany.montecarlo.Quadrature;
+import com.mycompany.montecarlo.QuasiMonteCarlo;
+import com.mycompany.montecarlo.RandomSampler;
+import com.mycompany.montecarlo.SampleStore;
+import com.mycompany.montecarlo.SampleStream;
+import com.mycompany.montecarlo.Singularities;
+import com.mycompany.montecarlo.SobolSampler;
+import com.mycompany.montecarlo.StratifiedEstimate;
+import com.mycompany.montecarlo.StratifiedMonteCarlo;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author 6302743
+ */
+public class Tests {
+
+    private static final double DELTA = 0.001;
+    private static final double DELTA_Riem = 0.1;
+    private static final double DELTA_MonteC = 1.4;
+
+    //Tests for min and max methods
+    @Test
+    void testGetMin() {
+        ExpressionBuilder f = new ExpressionBuilder("x^2 - 4x + 1");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+
+        double leftBound = -1.0;
+        double rightBound = 5.0;
+
+        double expectedMin = -3.0;
+        double actualMin = Integrator.getMin(function, leftBound, rightBound);
+
+        assertEquals(expectedMin, actualMin, DELTA);
+    }
+
+    @Test
+    void testGetMax() {
+        ExpressionBuilder f = new ExpressionBuilder("x^2 - 4x + 1");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+
+        double leftBound = -1.0;
+        double rightBound = 5.0;
+
+        double expectedMax = 6.0;
+        double actualMax = Integrator.getMax(function, leftBound, rightBound);
+
+        assertEquals(expectedMax, actualMax, DELTA, "The maximum value calculation should be accurate within the specified tolerance.");
+    }
+
+    @Test
+    void testGetMinTrig() {
+        ExpressionBuilder f = new ExpressionBuilder("sinx");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+
+        double leftBound = -1.0;
+        double rightBound = 5.0;
+
+        // Expected minimum is -1
+        double expectedMin = -1.0;
+        double actualMin = Integrator.getMin(function, leftBound, rightBound);
+
+        assertEquals(expectedMin, actualMin, DELTA);
+    }
+
+    @Test
+    void testGetMaxTrig() {
+        ExpressionBuilder f = new ExpressionBuilder("sinx");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+
+        double leftBound = -1.0;
+        double rightBound = 5.0;
+
+        // Expected maximum is 1
+        double expectedMax = 1.0;
+        double actualMax = Integrator.getMax(function, leftBound, rightBound);
+
+        assertEquals(expectedMax, actualMax, DELTA, "The maximum value calculation should be accurate within the specified tolerance.");
+    }
+
+    @Test
+    void testGetMinWhenMinIsAtLeftBound() {
+        ExpressionBuilder f = new ExpressionBuilder("x^2 - 4x + 1");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+
+        double leftBound = 3.0;
+        double rightBound = 5.0;
+
+        // Min should be at x=3: f(3) = -2
+        double expectedMin = -2.0;
+        double actualMin = Integrator.getMin(function, leftBound, rightBound);
+
+        assertEquals(expectedMin, actualMin, DELTA);
+    }
+
+    @Test
+    void testGetMaxWhenMaxIsAtRightBound() {
+        ExpressionBuilder f = new ExpressionBuilder("x^2 - 4x + 1");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+
+        double leftBound = 3.0;
+        double rightBound = 5.0;
+
+        double expectedMax = 6.0;
+        double actualMax = Integrator.getMax(function, leftBound, rightBound);
+
+        assertEquals(expectedMax, actualMax, DELTA);
+    }
+
+    @Test
+    void testGetRangeWideInterval() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("sinx");
+
+        double[] range = Integrator.getRange(function, -1000.0, 1000.0);
+
+        assertEquals(-1.0, range[0], DELTA);
+        assertEquals(1.0, range[1], DELTA);
+    }
+
+    @Test
+    void testGetRangeNarrowPeak() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("e^(-100x^2)");
+
+        double[] range = Integrator.getRange(function, -999.3, 1000.0, 1e-6);
+
+        assertEquals(0.0, range[0], DELTA);
+        assertEquals(1.0, range[1], DELTA);
+    }
+
+    //Tests for Riemann Sum
+    @Test
+    void testIntegrateRiem_Quadratic_RightSum() {
+        ExpressionBuilder f = new ExpressionBuilder("x^2");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+
+        double leftBound = 0.0;
+        double rightBound = 4.0;
+
+        double expectedArea = 64.0 / 3.0;
+
+        double actualArea = Integrator.integrateRiem(function, leftBound, rightBound, 1000, "right");
+
+        assertEquals(expectedArea, actualArea, DELTA_Riem);
+    }
+
+    @Test
+    void testIntegrateRiem_Quadratic_LeftSum() {
+        ExpressionBuilder f = new ExpressionBuilder("x^2");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+        double leftBound = 0.0;
+        double rightBound = 4.0;
+
+        double expectedArea = 64.0 / 3.0;
+
+        double actualArea = Integrator.integrateRiem(function, leftBound, rightBound, 1000, "left");
+
+        assertEquals(expectedArea, actualArea, DELTA_Riem);
+    }
+
+    @Test
+    void testIntegrateRiem_Trigonometric_RightSum() {
+        ExpressionBuilder f = new ExpressionBuilder("sinx");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+        double leftBound = 0.0;
+        double rightBound = Math.PI; // Use Math.PI for the upper bound
+
+        double expectedArea = 2.0;
+
+        double actualArea = Integrator.integrateRiem(function, leftBound, rightBound, 1000, "right");
+
+        assertEquals(expectedArea, actualArea, DELTA_Riem);
+    }
+
+    @Test
+    void testIntegrateRiem_Trigonometric_LeftSum() {
+        ExpressionBuilder f = new ExpressionBuilder("sinx");
+        f.variable("x");
+        Expression function = f.build();
+        function.setVariable("x", 0);
+        double leftBound = 0.0;
+        double rightBound = Math.PI;
+
+        double expectedArea = 2.0;
+
+        double actualArea = Integrator.integrateRiem(function, leftBound, rightBound, 1000, "left");
+
+        assertEquals(expectedArea, actualArea, DELTA_Riem);
+    }
+
+    @Test
+    void testHigherOrderRulesConverge() {
+        BatchFunction f = ExpressionCompiler.compile("sin(x)");
+
+        // Doubling N divides the error by 4 for second order rules and 16 for Simpson
+        String[] rules = {"midpoint", "trapezoid", "simpson"};
+        double[] ratios = {4, 4, 16};
+        for (int r = 0; r < rules.length; r++) {
+            double coarse = Math.abs(Integrator.integrateRiem(f, 0, Math.PI, 50, rules[r]) - 2);
+            double fine = Math.abs(Integrator.integrateRiem(f, 0, Math.PI, 100, rules[r]) - 2);
+            assertEquals(ratios[r], coarse / fine, ratios[r] * 0.05, rules[r]);
+        }
+
+        assertEquals(2.0, Integrator.integrateRiem(f, 0, Math.PI, 64, "Romberg"), 1e-12);
+        assertEquals(2.0, Integrator.integrateRiem(f, 0, Math.PI, 100, "Romberg"), 1e-12, "Rounded down to 64 intervals");
+        assertEquals(0.0, Integrator.integrateRiem(f, 0, Math.PI, 100, "center"), 0.0, "Unknown rule");
+    }
+
+    @Test
+    void testSimpsonExactForCubics() {
+        BatchFunction f = ExpressionCompiler.compile("x^3 - 2x^2 + 1");
+        double expected = 0.75; // x^4/4 - 2x^3/3 + x from -1 to 2
+
+        assertEquals(expected, Integrator.integrateRiem(f, -1, 2, 2, "Simpson"), 1e-12);
+        assertEquals(expected, Integrator.integrateRiem(f, -1, 2, 7, "Simpson"), 1e-12, "Rounded up to 8 intervals");
+        assertEquals(expected, Integrator.integrateRiem(f, -1, 2, 4, "Romberg"), 1e-12);
+
+        // The finest Romberg grid is the largest power of two within the budget, however large
+        assertEquals(1L << 33, Quadrature.rombergIntervals(10_000_000_000L));
+        assertEquals(8, Quadrature.rombergIntervals(15));
+    }
+
+    @Test
+    void testRiemannSumsInParallelBlocks() {
+        BatchFunction f = ExpressionCompiler.compile("x");
+        long n = 1_000_000; // 16 blocks
+
+        List<Long> reported = new ArrayList<>();
+        double area = Quadrature.integrate(Quadrature.Rule.LEFT, f, 0, 1, n, reported::add);
+        assertEquals((n - 1) / (2.0 * n), area, 1e-15);
+        assertEquals(area, Quadrature.integrate(Quadrature.Rule.LEFT, f, 0, 1, n), 0.0, "Same sum whatever thread ran each block");
+        assertEquals(16, reported.size(), "One report per wave");
+        assertEquals(n, (long) reported.get(reported.size() - 1));
+
+        // Simpson and Romberg sum several grids, the count carries on from one to the next
+        for (Quadrature.Rule rule : new Quadrature.Rule[]{Quadrature.Rule.TRAPEZOID, Quadrature.Rule.SIMPSON, Quadrature.Rule.ROMBERG}) {
+            reported.clear();
+            Quadrature.integrate(rule, f, 0, 1, n, reported::add);
+            assertEquals(Quadrature.gridPoints(rule, n), (long) reported.get(reported.size() - 1), rule.name());
+        }
+
+        // A naive sum of 0.1 drifts in the 11th digit after a million terms
+        assertEquals(0.1, Integrator.integrateRiem(ExpressionCompiler.compile("0.1"), 0, 1, n, "midpoint"), 1e-15);
+    }
+
+    // Tests for adaptive Gauss-Kronrod
+    @Test
+    void testGaussKronrodSmoothFunction() {
+        GaussKronrod.Result result = GaussKronrod.integrate(ExpressionCompiler.compile("sin(x)"), 0, Math.PI, 100000);
+
+        assertEquals(2.0, result.getEstimate(), 1e-13);
+        assertEquals(16 * 15, result.getEvaluations(), "No piece should need a split");
+        assertTrue(result.isPrecise(GaussKronrod.DEFAULT_ABSOLUTE_ERROR, GaussKronrod.DEFAULT_RELATIVE_ERROR));
+    }
+
+    @Test
+    void testGaussKronrodRefinesPeak() {
+        BatchFunction f = ExpressionCompiler.compile("e^(-100(x-3)^2)");
+        double expected = Math.sqrt(Math.PI / 100);
+        PointBuffer nodes = new PointBuffer(0);
+
+        GaussKronrod.Result result = GaussKronrod.integrate(f, -10, 10, 1e-10, 1e-10, 100000, nodes);
+
+        assertEquals(expected, result.getEstimate(), 1e-10);
+        assertTrue(result.getEvaluations() < 5000, "Used " + result.getEvaluations());
+        assertTrue(Math.abs(result.getEstimate() - expected) <= result.getError(), "The error estimate should be conservative");
+        assertEquals(result.getEvaluations(), nodes.size());
+    }
+
+    @Test
+    void testGaussKronrodRespectsBudget() {
+        GaussKronrod.Result result = GaussKronrod.integrate(ExpressionCompiler.compile("sqrt(abs(x))"), -1, 1, 0, 0, 100, null);
+
+        assertEquals(75, result.getEvaluations()); // 15 + 2 * 30
+        assertEquals(4.0 / 3.0, result.getEstimate(), 1e-2);
+        assertFalse(result.isPrecise(0, 0));
+    }
+
+    //Test for monte carlo and plotPoints
+    @Test
+    void testIntegrateMonteCarlo_PositiveArea() {
+        ExpressionBuilder f = new ExpressionBuilder("x^2");
+        f.variable("x");
+        Expression function = f.build();
+        double leftBound = 0.0;
+        double rightBound = 4.0;
+        double minValue = Integrator.getMin(function, leftBound, rightBound); // Mock returns 0.0
+        double maxValue = Integrator.getMax(function, leftBound, rightBound); // Mock returns 16.0
+
+        PointBuffer randPoints = Integrator.plotPoints(leftBound, rightBound, minValue, maxValue, 100000);
+
+        double expectedArea = 64.0 / 3.0;
+
+        double actualArea = Integrator.integrateMonteCarlo(function, leftBound, rightBound, randPoints);
+
+        assertEquals(expectedArea, actualArea, DELTA_MonteC);
+    }
+
+    @Test
+    void testIntegrateMonteCarlo_CrossingXAxis_ZeroNetArea() {
+        ExpressionBuilder f = new ExpressionBuilder("x");
+        f.variable("x");
+        Expression function = f.build();
+        double leftBound = -2.0;
+        double rightBound = 2.0;
+
+        double minValue = -2.0;
+        double maxValue = 2.0;
+
+        PointBuffer randPoints = Integrator.plotPoints(leftBound, rightBound, minValue, maxValue, 100000);
+
+        double expectedArea = 0.0;
+
+        double actualArea = Integrator.integrateMonteCarlo(function, leftBound, rightBound, randPoints);
+
+        assertEquals(expectedArea, actualArea, DELTA_MonteC);
+    }
+
+    @Test
+    void testIntegrateMonteCarlo_NegativeArea() {
+        ExpressionBuilder f = new ExpressionBuilder("-x");
+        f.variable("x");
+        Expression function = f.build();
+
+        double leftBound = 1.0;
+        double rightBound = 5.0;
+
+        double minValue = -5.0;
+        double maxValue = -1.0;
+
+        PointBuffer randPoints = Integrator.plotPoints(leftBound, rightBound, minValue, maxValue, 100000);
+
+        double expectedArea = -12.0;
+
+        double actualArea = Integrator.integrateMonteCarlo(function, leftBound, rightBound, randPoints);
+
+        assertEquals(expectedArea, actualArea, DELTA_MonteC);
+    }
+    
+    
+    @Test
+    void testPlotPointsKeepsEverySample() {
+        PointBuffer randPoints = Integrator.plotPoints(0.0, 1.0, 0.0, 1.0, 100000);
+
+        assertEquals(100000, randPoints.size());
+        for (int i = 0; i < randPoints.size(); i++) {
+            assertTrue(randPoints.getX(i) >= 0.0 && randPoints.getX(i) <= 1.0);
+            assertTrue(randPoints.getY(i) >= 0.0 && randPoints.getY(i) <= 1.0);
+        }
+    }
+
+    @Test
+    void testPointBufferDuplicatesAndInsideFlags() {
+        PointBuffer points = new PointBuffer(1, true);
+        points.add(1.0, 0.5);
+        points.add(1.0, 2.0); // Same x, must not overwrite the first point
+        points.add(1.0, -0.5); // Grows past the initial capacity
+
+        ExpressionBuilder f = new ExpressionBuilder("x");
+        f.variable("x");
+        Integrator.integrateMonteCarlo(f.build(), 0.0, 1.0, points);
+
+        assertEquals(3, points.size());
+        assertEquals(0.5, points.getY(0), 0.0);
+        assertTrue(points.isInside(0));
+        assertFalse(points.isInside(1));
+        assertFalse(points.isInside(2));
+    }
+
+    @Test
+    void testParallelMonteCarloAccuracy() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+
+        double actualArea = ParallelMonteCarlo.integrate(function, 0.0, 4.0, 1000000, 42, 0);
+
+        assertEquals(64.0 / 3.0, actualArea, DELTA_MonteC);
+    }
+
+    @Test
+    void testParallelMonteCarloSameResultForAnyThreadCount() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("sinx - 0.5");
+        long numPoints = 300001; // Not a multiple of the block size
+
+        double oneThread = ParallelMonteCarlo.integrate(function, -2.0, 3.0, numPoints, 7, 1);
+        double twoThreads = ParallelMonteCarlo.integrate(function, -2.0, 3.0, numPoints, 7, 2);
+        double eightThreads = ParallelMonteCarlo.integrate(function, -2.0, 3.0, numPoints, 7, 8);
+
+        assertEquals(oneThread, twoThreads, 0.0);
+        assertEquals(oneThread, eightThreads, 0.0);
+
+        // The seeded points are the ones the parallel engine throws
+        double min = Integrator.getMin(function, -2.0, 3.0);
+        double max = Integrator.getMax(function, -2.0, 3.0);
+        PointBuffer randPoints = Integrator.plotPoints(-2.0, 3.0, min, max, numPoints, 7);
+        assertEquals(oneThread, Integrator.integrateMonteCarlo(function, -2.0, 3.0, randPoints), 1e-9);
+    }
+
+    @Test
+    void testStreamedHitOrMissMatchesParallelEngine() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("sinx - 0.5");
+        long numPoints = 300001;
+        double[] range = Integrator.getRange(function, -2.0, 3.0);
+        List<Long> counts = new ArrayList<>();
+
+        MonteCarloEstimator estimator = ParallelMonteCarlo.estimate(function, -2.0, 3.0, range[0], range[1], numPoints, 7,
+                partial -> counts.add(partial.getCount()));
+
+        assertEquals(ParallelMonteCarlo.integrate(function, -2.0, 3.0, numPoints, 7, 0), estimator.getEstimate(), 1e-9);
+        assertEquals(numPoints, estimator.getCount());
+        assertEquals(5, counts.size(), "One partial result per block while there are fewer blocks than steps");
+        for (int i = 1; i < counts.size(); i++) {
+            assertTrue(counts.get(i) > counts.get(i - 1));
+        }
+        assertEquals(numPoints, (long) counts.get(counts.size() - 1));
+    }
+
+    @Test
+    void testStreamedMeanValue() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+
+        MonteCarloEstimator estimator = ParallelMonteCarlo.estimateMeanValue(function, 0.0, 3.0, 1000000, 11, null);
+        MonteCarloEstimator again = ParallelMonteCarlo.estimateMeanValue(function, 0.0, 3.0, 1000000, 11, null);
+
+        assertEquals(1000000, estimator.getCount());
+        assertEquals(9.0, estimator.getEstimate(), 4 * estimator.getStandardError());
+        assertEquals(estimator.getEstimate(), again.getEstimate(), 0.0, "Blocks are combined in the same order on every run");
+
+        // The stored points of a seed are the ones the streamed run integrates
+        PointBuffer points = ParallelMonteCarlo.meanValuePoints(0.0, 3.0, 150000, 11);
+        MonteCarloEstimator stored = Integrator.estimateMeanValue(function, 0.0, 3.0, points);
+        MonteCarloEstimator streamed = ParallelMonteCarlo.estimateMeanValue(function, 0.0, 3.0, 150000, 11, null);
+        assertEquals(150000, stored.getCount());
+        assertEquals(streamed.getEstimate(), stored.getEstimate(), 1e-12);
+    }
+
+    @Test
+    void testCheckBounds() {
+        assertEquals("", Integrator.checkBounds(-1e6, 1e12));
+        assertEquals("Bounds must be finite numbers", Integrator.checkBounds(Double.NEGATIVE_INFINITY, 0));
+        assertEquals("Bounds must be finite numbers", Integrator.checkBounds(0, Double.NaN));
+        assertEquals("The interval is too wide", Integrator.checkBounds(-1e308, 1e308));
+    }
+
+    // Tests for the streaming estimator
+    @Test
+    void testEstimatorRunningVariance() {
+        double[] samples = {4.0, 7.0, 13.0, 16.0, -2.5, 0.0};
+        MonteCarloEstimator first = new MonteCarloEstimator();
+        MonteCarloEstimator second = new MonteCarloEstimator();
+        MonteCarloEstimator all = new MonteCarloEstimator();
+
+        for (int i = 0; i < samples.length; i++) {
+            all.add(samples[i]);
+            (i < 2 ? first : second).add(samples[i]);
+        }
+        first.combine(second);
+
+        // Two-pass reference values
+        double mean = 37.5 / 6;
+        double sumSquares = 0;
+        for (double sample : samples) {
+            sumSquares += (sample - mean) * (sample - mean);
+        }
+
+        assertEquals(mean, all.getEstimate(), 1e-12);
+        assertEquals(sumSquares / 5, all.getVariance(), 1e-12);
+        assertEquals(Math.sqrt(sumSquares / 5 / 6), all.getStandardError(), 1e-12);
+        assertEquals(all.getEstimate(), first.getEstimate(), 1e-12);
+        assertEquals(all.getVariance(), first.getVariance(), 1e-12);
+    }
+
+    @Test
+    void testMonteCarloUntilTargetError() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+
+        MonteCarloEstimator estimator = Integrator.integrateMonteCarloUntil(function, 0.0, 4.0, 0.1, 0, 0, 100000000, 42);
+        double[] interval = estimator.getConfidenceInterval();
+
+        assertTrue(estimator.stoppedOnError());
+        assertTrue(estimator.getHalfWidth() <= 0.1);
+        assertTrue(estimator.getCount() < 100000000);
+        assertEquals(64.0 / 3.0, estimator.getEstimate(), 0.3);
+        assertTrue(interval[0] < estimator.getEstimate() && estimator.getEstimate() < interval[1]);
+    }
+
+    @Test
+    void testMonteCarloUntilSampleBudget() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+
+        MonteCarloEstimator estimator = Integrator.integrateMonteCarloUntil(function, 0.0, 4.0, 1e-9, 0, 0, 5000, 42);
+
+        assertFalse(estimator.stoppedOnError());
+        assertEquals(5000, estimator.getCount());
+
+        // A huge time budget used to overflow the deadline and stop after the first batch
+        estimator = Integrator.integrateMonteCarloUntil(function, 0.0, 4.0, 1e-9, 0, Long.MAX_VALUE, 5000, 42);
+        assertEquals(5000, estimator.getCount());
+    }
+
+    // Tests for mean-value Monte Carlo
+    @Test
+    void testMeanValueMonteCarlo() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+        PointBuffer points = Integrator.plotPoints(0.0, 4.0, 0, 0, 100000, new RandomSampler(5));
+
+        MonteCarloEstimator estimator = Integrator.estimateMeanValue(function, 0.0, 4.0, points);
+
+        assertEquals(64.0 / 3.0, estimator.getEstimate(), DELTA_MonteC);
+        assertEquals(points.getX(10) * points.getX(10), points.getY(10), 1e-12);
+        assertTrue(points.isInside(10));
+    }
+
+    @Test
+    void testMeanValueHasLowerVarianceThanHitOrMiss() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("sin(x) + 2");
+
+        MonteCarloEstimator hitOrMiss = Integrator.integrateMonteCarloUntil(function, 0.0, Math.PI, 0, 0, 0, 50000, 1);
+        MonteCarloEstimator meanValue = Integrator.integrateMeanValueUntil(function, 0.0, Math.PI, 0, 0, 0, 50000, 1);
+
+        assertEquals(2.0 + 2 * Math.PI, meanValue.getEstimate(), 0.05);
+        assertTrue(meanValue.getVariance() < hitOrMiss.getVariance());
+    }
+
+    // Tests for stratified and Latin hypercube sampling
+    @Test
+    void testStratifiedMonteCarlo() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+        double[] range = Integrator.getRange(function, 0.0, 4.0);
+
+        for (StratifiedMonteCarlo.Allocation allocation : StratifiedMonteCarlo.Allocation.values()) {
+            PointBuffer points = StratifiedMonteCarlo.plotPoints(function, 0.0, 4.0, range[0], range[1], 20000, 32, allocation, 9);
+            StratifiedEstimate estimate = StratifiedMonteCarlo.estimate(function, 0.0, 4.0, points, 32);
+
+            assertEquals(20000, points.size());
+            assertEquals(64.0 / 3.0, estimate.getEstimate(), 0.5, allocation.toString());
+            assertTrue(estimate.getVarianceReduction() > 1.5, allocation + " should beat uniform sampling");
+        }
+    }
+
+    @Test
+    void testStratifiedAllocationSumsToTotal() {
+        PointBuffer points = StratifiedMonteCarlo.plotPoints(ExpressionCompiler.compile("e^(-10x^2)"), -3.0, 3.0, 0.0, 1.0, 1001, 7,
+                StratifiedMonteCarlo.Allocation.NEYMAN, 2);
+
+        assertEquals(1001, points.size());
+
+        // Two points per stratum, the fewest a stratum variance needs: none may land in a neighbour
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+        points = StratifiedMonteCarlo.plotPoints(function, -1.0, 1.1, 0.0, 1.21, 2000, 1000, StratifiedMonteCarlo.Allocation.PROPORTIONAL, 3);
+        int[] perStratum = new int[1000];
+        for (int i = 0; i < points.size(); i++) {
+            perStratum[Math.min(999, (int) ((points.getX(i) + 1.0) / 2.1 * 1000))]++;
+        }
+        for (int count : perStratum) {
+            assertEquals(2, count);
+        }
+        StratifiedEstimate estimate = StratifiedMonteCarlo.estimate(function, -1.0, 1.1, new double[]{0.0, 1.21}, points, 1000);
+        assertTrue(estimate.getStandardError() > 0 && Double.isFinite(estimate.getVarianceReduction()), estimate.toString());
+    }
+
+    @Test
+    void testLatinHypercubeMonteCarlo() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+        double[] range = Integrator.getRange(function, 0.0, 4.0);
+
+        PointBuffer points = StratifiedMonteCarlo.latinHypercubePoints(0.0, 4.0, range[0], range[1], 20000, 4);
+        StratifiedEstimate estimate = StratifiedMonteCarlo.estimateLatinHypercube(function, 0.0, 4.0, points);
+
+        assertEquals(20000, points.size());
+        assertEquals(64.0 / 3.0, estimate.getEstimate(), 0.5);
+        assertTrue(estimate.getStandardError() > 0);
+    }
+
+    // Tests for quasi-Monte Carlo
+    @Test
+    void testSobolPointsAreStratified() {
+        PointSampler sampler = new SobolSampler(3);
+        int n = 1024;
+        boolean[] xCells = new boolean[n];
+        boolean[] yCells = new boolean[n];
+        double[] point = new double[2];
+
+        // The first 2^k points of a (scrambled) Sobol sequence put exactly one point in every 1/2^k slice
+        for (int i = 0; i < n; i++) {
+            sampler.next(point);
+            int xCell = (int) (point[0] * n);
+            int yCell = (int) (point[1] * n);
+            assertFalse(xCells[xCell], "Two points in the same x slice");
+            assertFalse(yCells[yCell], "Two points in the same y slice");
+            xCells[xCell] = true;
+            yCells[yCell] = true;
+        }
+    }
+
+    @Test
+    void testQuasiMonteCarloAccuracy() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2");
+        double[] range = Integrator.getRange(function, 0.0, 4.0);
+
+        for (QuasiMonteCarlo.Sequence sequence : QuasiMonteCarlo.Sequence.values()) {
+            PointBuffer points = QuasiMonteCarlo.plotPoints(0.0, 4.0, range[0], range[1], 8192, sequence, 11);
+            MonteCarloEstimator estimator = QuasiMonteCarlo.estimate(function, 0.0, 4.0, points);
+
+            assertEquals(8192, points.size());
+            assertEquals(QuasiMonteCarlo.REPLICATES, estimator.getCount());
+            assertEquals(64.0 / 3.0, estimator.getEstimate(), 0.05, sequence.toString());
+            assertTrue(estimator.getHalfWidth() < 0.05, sequence.toString());
+        }
+    }
+
+    // Tests for importance sampling
+    @Test
+    void testImportanceSamplingPeakedFunction() {
+        // Area sqrt(pi) / 10, almost all of it within 0.3 of 0
+        DoubleUnaryOperator function = ExpressionCompiler.compile("e^(-100x^2)");
+        ImportanceSampling.Proposal proposal = ImportanceSampling.fitProposal(function, -1000.0, 1000.0);
+        PointBuffer points = ImportanceSampling.plotPoints(proposal, 10000, 5);
+        MonteCarloEstimator estimator = ImportanceSampling.estimate(function, proposal, points);
+
+        assertEquals(Math.sqrt(Math.PI) / 10, estimator.getEstimate(), 0.005);
+        assertTrue(estimator.getHalfWidth() < 0.005);
+
+        int nearPeak = 0;
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(function.applyAsDouble(points.getX(i)), points.getY(i), 0.0);
+            if (Math.abs(points.getX(i)) < 1) {
+                nearPeak++;
+            }
+        }
+        assertTrue(nearPeak > points.size() / 2, "Most points should land on the peak");
+    }
+
+    @Test
+    void testImportanceSamplingBeatsUniform() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("e^(-100(x-3)^2)");
+        MonteCarloEstimator importance = ImportanceSampling.integrateUntil(function, -10.0, 10.0, 2e-3, 0, 0, 10_000_000, 3);
+        MonteCarloEstimator uniform = Integrator.integrateMeanValueUntil(function, -10.0, 10.0, 2e-3, 0, 0, 10_000_000, 3);
+
+        assertEquals(Math.sqrt(Math.PI) / 10, importance.getEstimate(), 4e-3);
+        assertTrue(importance.stoppedOnError());
+        assertTrue(importance.getCount() * 10 < uniform.getCount(), importance.getCount() + " vs " + uniform.getCount());
+    }
+
+    @Test
+    void testImportanceSamplingZeroFunction() {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("0x");
+        ImportanceSampling.Proposal proposal = ImportanceSampling.fitProposal(function, -1.0, 1.0);
+        PointBuffer points = ImportanceSampling.plotPoints(proposal, 100, 1);
+
+        assertEquals(0.0, ImportanceSampling.estimate(function, proposal, points).getEstimate(), 0.0);
+    }
+
+    // Tests for incremental sampling
+    @Test
+    void testSampleStreamMatchesFreshPoints() {
+        BatchFunction f = ExpressionCompiler.compile("sin(x) + 0.5");
+        double[] range = Integrator.getRange(f, -2, 3);
+        SampleStream stream = new SampleStream("sin(x) + 0.5", -2, 3, range[0], range[1], 42);
+
+        // Grow past a segment and a block, then shrink: every prefix is the fresh run with the same seed
+        for (int n : new int[]{1000, 70000, 5000, 70001}) {
+            stream.evaluate(f, n);
+            PointBuffer fresh = Integrator.plotPoints(-2, 3, range[0], range[1], n, 42L);
+            MonteCarloEstimator expected = Integrator.estimateMonteCarlo(f, -2, 3, fresh);
+            MonteCarloEstimator actual = stream.estimator(n);
+            PointBuffer snapshot = stream.snapshot(n);
+
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getEstimate(), actual.getEstimate(), 1e-9, "n = " + n);
+            assertEquals(expected.getVariance(), actual.getVariance(), 1e-9, "n = " + n);
+            for (int i = 0; i < n; i += 997) {
+                assertEquals(fresh.getX(i), snapshot.getX(i), 0.0);
+                assertEquals(fresh.getY(i), snapshot.getY(i), 0.0);
+                assertEquals(fresh.isInside(i), snapshot.isInside(i), "Point " + i);
+            }
+        }
+        assertEquals(70001, stream.getEvaluated());
+    }
+
+    @Test
+    void testSampleStreamOnlyEvaluatesNewPoints() {
+        int[] evaluations = new int[1];
+        BatchFunction f = BatchFunction.of(x -> {
+            evaluations[0]++;
+            return x * x;
+        });
+        SampleStream stream = new SampleStream("x^2", 0, 1, 0, 1, 7);
+
+        stream.evaluate(f, 50000);
+        stream.evaluate(f, 60000);
+        assertEquals(60000, evaluations[0]);
+        stream.evaluate(f, 20000);
+        assertEquals(60000, evaluations[0], "Shrinking reuses a prefix");
+        assertThrows(IllegalArgumentException.class, () -> stream.estimator(60001));
+    }
+
+    // Tests for the sample store
+    @Test
+    void testSampleStoreReplaysTheSeededPoints() throws IOException {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("x^2 - 1");
+        double[] range = Integrator.getRange(function, -1.0, 2.0);
+        long numPoints = 200003;
+        Path file = Files.createTempFile("samples", ".mcss");
+        try {
+            SampleStore.write(file, -1.0, 2.0, range[0], range[1], numPoints, 5);
+            assertEquals(64 + 16 * numPoints, Files.size(file));
+
+            try (SampleStore store = SampleStore.open(file)) {
+                assertEquals(numPoints, store.size());
+                assertEquals(SampleStore.Generator.BLOCKS, store.getGenerator());
+                assertEquals(5, store.getSeed());
+                assertEquals(range[1], store.getMax(), 0.0);
+
+                // The stored points are the ones plotPoints draws for the seed
+                PointBuffer expected = Integrator.plotPoints(-1.0, 2.0, range[0], range[1], 100, 5);
+                PointBuffer stored = store.read(0, 100);
+                for (int i = 0; i < 100; i++) {
+                    assertEquals(expected.getX(i), stored.getX(i), 0.0);
+                    assertEquals(expected.getY(i), stored.getY(i), 0.0);
+                }
+
+                MonteCarloEstimator replayed = Integrator.estimateMonteCarlo(function, store);
+                MonteCarloEstimator streamed = ParallelMonteCarlo.estimate(function, -1.0, 2.0, range[0], range[1], numPoints, 5, null);
+                assertEquals(numPoints, replayed.getCount());
+                assertEquals(streamed.getEstimate(), replayed.getEstimate(), 1e-9);
+            }
+
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(Integrator.plotPoints(-1.0, 2.0, range[0], range[1], 1, 5).getX(0), bytes.getDouble(64), 0.0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testSampleStoreKeepsTheIntegratedPoints() throws IOException {
+        DoubleUnaryOperator function = ExpressionCompiler.compile("sin(x)");
+        long numPoints = 150000; // 3 blocks, the last one partial
+        Path written = Files.createTempFile("samples", ".mcss");
+        Path streamed = Files.createTempFile("samples", ".mcss");
+        Path kept = Files.createTempFile("samples", ".mcss");
+        try {
+            SampleStore.write(written, 0, 3, 0, 1, numPoints, 9);
+
+            MonteCarloEstimator estimator;
+            try (SampleStore.Writer sink = SampleStore.create(streamed, SampleStore.Generator.BLOCKS, 9, 0, 3, 0, 1, numPoints)) {
+                estimator = ParallelMonteCarlo.estimate(function, 0, 3, 0, 1, numPoints, 9, null, sink);
+                assertEquals(numPoints, sink.size());
+                assertThrows(IllegalStateException.class, () -> sink.append(0, 0));
+            }
+            assertTrue(Arrays.equals(Files.readAllBytes(written), Files.readAllBytes(streamed)), "Same points as SampleStore.write");
+            try (SampleStore store = SampleStore.open(streamed)) {
+                assertEquals(estimator.getEstimate(), Integrator.estimateMonteCarlo(function, store).getEstimate(), 1e-12);
+            }
+
+            SampleStream stream = new SampleStream("sin(x)", 0, 3, 0, 1, 9);
+            stream.evaluate(ExpressionCompiler.compile("sin(x)"), 1000);
+            try (SampleStore.Writer sink = SampleStore.create(kept, SampleStore.Generator.BLOCKS, 9, 0, 3, 0, 1, 1000)) {
+                stream.write(sink, 1000);
+            }
+            try (SampleStore fromStream = SampleStore.open(kept); SampleStore fromBlocks = SampleStore.open(written)) {
+                PointBuffer expected = fromBlocks.read(0, 1000);
+                PointBuffer actual = fromStream.read(0, 1000);
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(expected.getX(i), actual.getX(i), 0.0);
+                    assertEquals(expected.getY(i), actual.getY(i), 0.0);
+                }
+            }
+        } finally {
+            Files.delete(written);
+            Files.delete(streamed);
+            Files.delete(kept);
+        }
+    }
+
+    @Test
+    void testAbortedRunKeepsOnlyTheFinishedWaves() throws IOException {
+        long numPoints = 1_000_000; // 16 blocks, one per wave
+        AtomicLong calls = new AtomicLong();
+        DoubleUnaryOperator failing = x -> {
+            if (calls.incrementAndGet() > 3 * 65536 + 100) {
+                throw new IllegalStateException("Cancelled");
+            }
+            return x;
+        };
+        Path file = Files.createTempFile("samples", ".mcss");
+        try {
+            try (SampleStore.Writer sink = SampleStore.create(file, SampleStore.Generator.BLOCKS, 3, 0, 1, 0, 1, numPoints)) {
+                assertThrows(RuntimeException.class, () -> ParallelMonteCarlo.estimate(failing, 0, 1, 0, 1, numPoints, 3, null, sink));
+                assertEquals(3 * 65536, sink.size(), "The wave that failed isn't counted");
+            }
+            assertEquals(64 + 16 * 3 * 65536, Files.size(file), "No holes or unwritten points");
+
+            try (SampleStore store = SampleStore.open(file)) {
+                assertEquals(3 * 65536, store.size());
+                PointBuffer expected = Integrator.plotPoints(0, 1, 0, 1, 3 * 65536, 3);
+                PointBuffer stored = store.read(0, 3 * 65536);
+                assertEquals(expected.getX(3 * 65536 - 1), stored.getX(3 * 65536 - 1), 0.0);
+                assertEquals(expected.getY(3 * 65536 - 1), stored.getY(3 * 65536 - 1), 0.0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testSampleStoreWriterAndInvalidFiles() throws IOException {
+        Path file = Files.createTempFile("samples", ".mcss");
+        try {
+            try (SampleStore.Writer writer = SampleStore.create(file, SampleStore.Generator.OTHER, 0, 0, 1, 0, 1, 10)) {
+                writer.append(0.25, 0.5);
+                writer.append(0.75, 0.125);
+            }
+            assertEquals(64 + 2 * 16, Files.size(file), "The file holds only the points appended");
+            try (SampleStore store = SampleStore.open(file)) {
+                PointBuffer points = store.read(0, 2);
+                assertEquals(0.75, points.getX(1), 0.0);
+                assertEquals(0.125, points.getY(1), 0.0);
+                assertEquals(1.0, Integrator.integrateMonteCarlo(ExpressionCompiler.compile("1"), store), 0.0);
+            }
+
+            try (SampleStore.Writer writer = SampleStore.create(file, SampleStore.Generator.OTHER, 0, 0, 1, 0, 1, 1)) {
+                writer.append(0.5, 0.5);
+                assertThrows(IllegalStateException.class, () -> writer.append(0.5, 0.5));
+            }
+
+            Files.write(file, "not a sample store".getBytes(StandardCharsets.US_ASCII));
+            assertThrows(IOException.class, () -> SampleStore.open(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Tests for the batch mode
+    @Test
+    void testBatchRunsJobsInFileOrder() throws IOException {
+        String jobs = "# equation;lower;upper;method;points;seed\n"
+                + "x^2;0;4;simpson;100\n"
+                + "\n"
+                + "pow(x, 2);0;4;hit-or-miss;20000;7\n"
+                + "sin(x;0;1;left;10\n"
+                + "x;1;0;left;10\n"
+                + "sin(x);0;3.141592653589793;gauss-kronrod;1000\n";
+        StringWriter out = new StringWriter();
+
+        int failures = BatchRunner.run(new StringReader(jobs), out, BatchRunner.Format.CSV, 3);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, failures);
+        assertEquals(6, lines.length);
+        assertEquals("line,equation,lower,upper,method,points,seed,estimate,error,millis,status", lines[0]);
+        assertTrue(lines[1].startsWith("2,x^2,0.0,4.0,simpson,100,"), lines[1]);
+        assertEquals(64.0 / 3.0, Double.parseDouble(lines[1].split(",")[7]), 1e-9);
+        assertTrue(lines[2].startsWith("4,\"pow(x, 2)\",0.0,4.0,hit-or-miss,20000,7,"), "Quoted because of the comma: " + lines[2]);
+        DoubleUnaryOperator square = ExpressionCompiler.compile("x^2");
+        double[] range = Integrator.getRange(square, 0, 4);
+        assertEquals(ParallelMonteCarlo.estimate(square, 0, 4, range[0], range[1], 20000, 7, null).getEstimate(),
+                Double.parseDouble(lines[2].split(",")[8]), 0.0, "Streamed like ParallelMonteCarlo");
+        assertTrue(lines[3].startsWith("5,sin(x,") && lines[3].endsWith(",Invalid function"), lines[3]);
+        assertTrue(lines[4].endsWith("Lower bound must be strictly less than upper bound"), lines[4]);
+        assertTrue(lines[5].endsWith(",ok"), lines[5]);
+    }
+
+    @Test
+    void testBatchIsReproducibleWithSeed() throws IOException {
+        String jobs = "x^3 - x;-1;2;stratified;5000;11\nx^3 - x;-1;2;stratified;5000;11\n";
+        StringWriter out = new StringWriter();
+
+        BatchRunner.run(new StringReader(jobs), out, BatchRunner.Format.JSON, 2);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"line\":1,\"equation\":\"x^3 - x\",\"lower\":-1.0,"), lines[0]);
+        assertTrue(lines[0].endsWith("\"status\":\"ok\"}"), lines[0]);
+        assertEquals(lines[0].replaceAll("\"millis\":[^,]*,", "").substring(10), lines[1].replaceAll("\"millis\":[^,]*,", "").substring(10));
+    }
+
+    // Tests for the performance monitor
+    @Test
+    void testMonitorRecordsPhases() {
+        PerformanceMonitor monitor = new PerformanceMonitor();
+        PerformanceMonitor.CountingFunction f = PerformanceMonitor.counting(ExpressionCompiler.compile("x^2"));
+
+        monitor.beginRun();
+        try (PerformanceMonitor.Span span = monitor.start(PerformanceMonitor.Phase.INTEGRATION, f)) {
+            Integrator.integrateRiem(f, 0, 1, 5000, "left");
+        }
+        try (PerformanceMonitor.Span span = monitor.start(PerformanceMonitor.Phase.INTEGRATION, f)) {
+            f.applyAsDouble(1);
+        }
+        try (PerformanceMonitor.Span span = monitor.start(PerformanceMonitor.Phase.DISPLAY)) {
+            double[] allocated = new double[100000];
+            assertEquals(0.0, allocated[0]);
+        }
+
+        List<PerformanceMonitor.Measurement> latest = monitor.getLatest();
+        assertEquals(2, latest.size());
+        assertEquals(PerformanceMonitor.Phase.INTEGRATION, latest.get(0).getPhase());
+        assertEquals(5001, latest.get(0).getEvaluations(), "Both spans of the phase add up");
+        assertEquals(0, latest.get(1).getEvaluations());
+        long bytes = latest.get(1).getAllocatedBytes();
+        assertTrue(bytes == -1 || bytes >= 800000, "Allocated " + bytes);
+        assertEquals(2, monitor.getCount(PerformanceMonitor.Phase.INTEGRATION));
+        assertEquals(-1, monitor.percentile(PerformanceMonitor.Phase.PARSE, 0.5));
+
+        monitor.beginRun();
+        assertTrue(monitor.getLatest().isEmpty());
+        assertTrue(monitor.percentile(PerformanceMonitor.Phase.INTEGRATION, 0.99) >= monitor.percentile(PerformanceMonitor.Phase.INTEGRATION, 0.5),
+                "Percentiles outlive the run");
+    }
+
+    @Test
+    void testBatchRecordsPhases() throws IOException {
+        long before = BatchRunner.getMonitor().getCount(PerformanceMonitor.Phase.INTEGRATION);
+
+        BatchRunner.run(new StringReader("x^2;0;1;midpoint;1000\n"), new StringWriter(), BatchRunner.Format.CSV, 1);
+
+        assertEquals(before + 1, BatchRunner.getMonitor().getCount(PerformanceMonitor.Phase.INTEGRATION));
+        assertTrue(BatchRunner.getMonitor().report().contains("CONTINUITY"));
+    }
+
+    // Tests for the flight recorder events
+    @Test
+    void testIntegrationEmitsFlightRecorderEvents() throws IOException {
+        BatchFunction f = ExpressionCompiler.compile("x^2");
+        Path file = Files.createTempFile("integration", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.mycompany.montecarlo.Integration");
+            recording.enable("com.mycompany.montecarlo.RangeSearch");
+            recording.start();
+            Integrator.integrateRiem(f, 0, 1, 1000, "midpoint");
+            Integrator.integrateMonteCarlo(f, 0, 2, Integrator.plotPoints(0, 2, 0, 4, 5000, 1L));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        List<RecordedEvent> integrations = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            assertEquals("x^2", event.getString("equation"));
+            if (event.getEventType().getName().equals("com.mycompany.montecarlo.Integration")) {
+                integrations.add(event);
+            }
+        }
+        assertEquals(2, integrations.size());
+        assertEquals(3, events.size(), "The Monte Carlo integration also searches the range");
+
+        RecordedEvent riemann = integrations.get(0);
+        assertEquals("MIDPOINT", riemann.getString("method"));
+        assertEquals(1000, riemann.getLong("numPoints"));
+        assertEquals(1000, riemann.getLong("evaluations"));
+        assertEquals(0.0, riemann.getDouble("lowerBound"));
+        assertEquals(1.0, riemann.getDouble("upperBound"));
+
+        RecordedEvent monteCarlo = integrations.get(1);
+        assertEquals(5000, monteCarlo.getLong("numPoints"));
+        assertTrue(monteCarlo.getLong("evaluations") > 5000, "The range search is part of the integration");
+    }
+
+    // Tests for the caches
+    @Test
+    void testCacheEvictsLeastRecentlyUsed() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length);
+        cache.put("a", "xxxx");
+        cache.put("b", "xxxx");
+        assertEquals("xxxx", cache.get("a")); // b is now the least recently used
+        cache.put("c", "xxxx");
+
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getWeight());
+        assertEquals("xxxx", cache.get("a"));
+        assertEquals(null, cache.get("b"));
+        assertEquals("xxxx", cache.get("c"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testCacheSkipsOversizedValues() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length);
+        cache.put("a", "xxxx");
+        cache.put("a", "xxxxxxxxxxxx"); // Heavier than the whole cache, the old value is dropped too
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, String>(0, String::length));
+    }
+
+    // Tests for the singularity search
+    @Test
+    void testSingularitiesLocatePolesBetweenGridPoints() {
+        List<Singularities.Singularity> odd = Singularities.find(ExpressionCompiler.compile("(x - 0.1234567)^-1"), -1, 1);
+        assertEquals(1, odd.size(), odd.toString());
+        assertEquals(Singularities.Kind.POLE, odd.get(0).getKind());
+        assertEquals(0.1234567, odd.get(0).getLocation(), 1e-12);
+
+        List<Singularities.Singularity> even = Singularities.find(ExpressionCompiler.compile("(x + 0.3141)^-2 + x"), -1, 1);
+        assertEquals(1, even.size(), even.toString());
+        assertEquals(Singularities.Kind.POLE, even.get(0).getKind());
+        assertEquals(-0.3141, even.get(0).getLocation(), 1e-12);
+    }
+
+    @Test
+    void testSingularitiesFindJumpsAndUndefinedRegions() {
+        List<Singularities.Singularity> jump = Singularities.find(ExpressionCompiler.compile("signum(x - 0.3) + x^2"), -1, 1);
+        assertEquals(1, jump.size(), jump.toString());
+        assertEquals(Singularities.Kind.JUMP, jump.get(0).getKind());
+        assertEquals(0.3, jump.get(0).getLocation(), 1e-12);
+
+        List<Singularities.Singularity> root = Singularities.find(ExpressionCompiler.compile("sqrt(x)"), -1, 1);
+        assertEquals(1, root.size(), root.toString());
+        assertEquals(Singularities.Kind.UNDEFINED, root.get(0).getKind());
+        assertEquals(-1.0, root.get(0).getLeft());
+        assertEquals(0.0, root.get(0).getRight(), 1e-12);
+
+        assertEquals("Function is not continuous on the interval", Integrator.checkContinuity(ExpressionCompiler.compile("log(x)"), -1, 1));
+    }
+
+    @Test
+    void testSmoothFunctionsHaveNoSingularities() {
+        for (String equation : new String[]{"tanh(1000x)", "sqrt(abs(x))", "sin(50x)", "e^x", "floor(0.5) + 3"}) {
+            assertTrue(Singularities.find(ExpressionCompiler.compile(equation), -2, 3).isEmpty(), equation);
+        }
+
+        // The 0.001 scan evaluated 2 million points on the widest interval
+        PerformanceMonitor.CountingFunction f = PerformanceMonitor.counting(ExpressionCompiler.compile("x^2 - 3x"));
+        assertEquals("", Integrator.checkContinuity(f, -1000, 1000));
+        assertTrue(f.getEvaluations() < 20000, f.getEvaluations() + " evaluations");
+    }
+
+    @Test
+    void testSteepPowersAreContinuous() {
+        // Their variation shrinks by less than KEEP_RATIO per split, so bisection reaches the last bracket without a jump there
+        assertEquals("", Integrator.checkContinuity(ExpressionCompiler.compile("x^0.25"), 0, 1));
+        assertEquals("", Integrator.checkContinuity(ExpressionCompiler.compile("abs(x)^0.1"), -1, 1));
+        assertTrue(Singularities.find(ExpressionCompiler.compile("x^0.25"), 0, 1).isEmpty());
+    }
+
+    // Tests for the expression compiler
+    @Test
+    void testCompiledMatchesInterpreted() {
+        String[] equations = {"x^2 - 4x + 1", "sinx", "-x", "3x^3 - 2cos(x) + e^x", "sqrt(abs(x)) + log(x^2 + 1)",
+            "pow(x, 3) % 2", "signum(x) * cbrt(x)", "log2(x^2 + 2) - pi", "+x - -x"};
+
+        for (String equation : equations) {
+            Expression expression = new ExpressionBuilder(equation).variable("x").build();
+            DoubleUnaryOperator compiled = ExpressionCompiler.compile(equation);
+            assertTrue(compiled.getClass().getName().startsWith("montecarlo.generated."), equation + " should be compiled, not interpreted");
+
+            for (double x = -3; x <= 3; x += 0.25) {
+                expression.setVariable("x", x);
+                assertEquals(expression.evaluate(), compiled.applyAsDouble(x), 0.0, equation + " at x = " + x);
+            }
+        }
+    }
+
+    @Test
+    void testBatchEvaluationMatchesScalar() {
+        Expression expression = new ExpressionBuilder("3x^3 - 2cos(x) + e^x").variable("x").build();
+        BatchFunction[] functions = {ExpressionCompiler.compile("3x^3 - 2cos(x) + e^x"), ExpressionCompiler.interpret(expression),
+            BatchFunction.of(x -> 3 * x * x * x - 2 * Math.cos(x) + Math.exp(x))};
+
+        // The generated class has its own loop instead of the default method
+        assertTrue(Arrays.stream(functions[0].getClass().getDeclaredMethods()).anyMatch(method -> method.getName().equals("evaluate")));
+
+        double[] xs = new double[3000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = -3 + i * 0.002;
+        }
+
+        for (BatchFunction function : functions) {
+            double[] out = new double[xs.length];
+            function.evaluate(xs, out, 10, 2990);
+
+            assertEquals(0.0, out[9], 0.0, "Values before from must be left alone");
+            assertEquals(0.0, out[2990], 0.0, "Values from to on must be left alone");
+            for (int i = 10; i < 2990; i++) {
+                assertEquals(function.applyAsDouble(xs[i]), out[i], 0.0, function + " at x = " + xs[i]);
+            }
+        }
+    }
+
+    @Test
+    void testCompiledDivisionByZero() {
+        DoubleUnaryOperator compiled = ExpressionCompiler.compile("1/x");
+
+        assertEquals(0.5, compiled.applyAsDouble(2), 0.0);
+        assertThrows(ArithmeticException.class, () -> compiled.applyAsDouble(0));
+    }
+
+    @Test
+    void testCompileInvalidEquation() {
+        // Rejected by the parser, same as ExpressionBuilder
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compile("sin(x"));
+
+        // Parses but can't be evaluated, the interpreter fallback reports it on evaluation
+        DoubleUnaryOperator compiled = ExpressionCompiler.compile("x ^^^ 5");
+        assertThrows(IllegalArgumentException.class, () -> compiled.applyAsDouble(1));
+    }
+
+    @Test
+    void testInterpretedFallback() {
+        Expression expression = new ExpressionBuilder("x^2 - 4x + 1").variable("x").build();
+        DoubleUnaryOperator interpreted = ExpressionCompiler.interpret(expression);
+
+        assertEquals(-3.0, interpreted.applyAsDouble(2), 0.0);
+    }
+}
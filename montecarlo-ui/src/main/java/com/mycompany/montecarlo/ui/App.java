@@ -0,0 +1,44 @@
+package com.mycompany.montecarlo.ui;
+
+import javafx.application.Application;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import java.io.IOException;
+
+/**
+ * JavaFX App. The integration itself is done by the engine in the core module,
+ * see Integrator.
+ */
+public class App extends Application {
+
+    public static Scene scene;
+    public static Stage mainStage;
+
+    @Override
+    public void start(Stage stage) throws IOException {
+        mainStage = stage;
+        stage.setTitle("Monte Carlo Integration Visualization");
+        scene = new Scene(loadFXML("IntroUIFXML"), 800, 600);
+        scene.getStylesheets().add(getClass().getResource("stylecss.css").toString());
+        stage.setResizable(false);
+
+//        scene = new Scene(loadFXML("MainViewFXML"), 640, 480);
+        stage.setScene(scene);
+        stage.show();
+    }
+
+    static void setRoot(String fxml) throws IOException {
+        scene.setRoot(loadFXML(fxml));
+    }
+
+    private static Parent loadFXML(String fxml) throws IOException {
+        FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource(fxml + ".fxml"));
+        return fxmlLoader.load();
+    }
+
+    public static void main(String[] args) {
+        launch();
+    }
+}
@@ -0,0 +1,63 @@
+package com.mycompany.montecarlo.ui;
+
+/**
+ * Everything about an equation on an interval that doesn't depend on the
+ * number of points or the integration method: the continuity check result,
+ * the plotted curve and the range of the function.
+ *
+ * Cached by the controller, keyed by equation and bounds, so changing N or
+ * switching between methods reuses it.
+ */
+public final class CurveInfo {
+
+    private static final long OVERHEAD_BYTES = 128; // Object headers, the range array and the error string
+
+    private final String continuityError; // "" if the function is fine on the interval
+    private final double[] curveXs; // Plotted curve, null if the continuity check failed
+    private final double[] curveYs;
+    private volatile double[] range; // {min, max}, null until a method needs it
+
+    /**
+     * @param continuityError the continuity check result, "" if there is no
+     * problem
+     * @param curveXs x values of the plotted curve, null on error
+     * @param curveYs function values at curveXs, null on error
+     */
+    public CurveInfo(String continuityError, double[] curveXs, double[] curveYs) {
+        this.continuityError = continuityError;
+        this.curveXs = curveXs;
+        this.curveYs = curveYs;
+    }
+
+    public String getContinuityError() {
+        return continuityError;
+    }
+
+    public double[] getCurveXs() {
+        return curveXs;
+    }
+
+    public double[] getCurveYs() {
+        return curveYs;
+    }
+
+    /**
+     * @return {min, max} of the function on the interval, null if it wasn't
+     * computed yet
+     */
+    public double[] getRange() {
+        return range;
+    }
+
+    public void setRange(double[] range) {
+        this.range = range;
+    }
+
+    /**
+     * @return estimated memory used, in bytes
+     */
+    public long weight() {
+        long doubles = (curveXs == null ? 0 : curveXs.length) + (curveYs == null ? 0 : curveYs.length);
+        return OVERHEAD_BYTES + 8 * doubles;
+    }
+}
@@ -0,0 +1,456 @@
+package com.mycompany.montecarlo.ui;
+
+import com.mycompany.montecarlo.BatchFunction;
+import com.mycompany.montecarlo.GaussKronrod;
+import com.mycompany.montecarlo.ImportanceSampling;
+import com.mycompany.montecarlo.Integrator;
+import com.mycompany.montecarlo.LruCache;
+import com.mycompany.montecarlo.MonteCarloEstimator;
+import com.mycompany.montecarlo.ParallelMonteCarlo;
+import com.mycompany.montecarlo.PerformanceMonitor;
+import com.mycompany.montecarlo.PerformanceMonitor.Phase;
+import com.mycompany.montecarlo.PointBuffer;
+import com.mycompany.montecarlo.ProfilingEvents;
+import com.mycompany.montecarlo.Quadrature;
+import com.mycompany.montecarlo.QuasiMonteCarlo;
+import com.mycompany.montecarlo.SampleStream;
+import com.mycompany.montecarlo.StratifiedMonteCarlo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javafx.concurrent.Task;
+
+/**
+ * Runs the expensive part of an update (continuity check, integration and
+ * sampling of the curve) away from the JavaFX Application Thread.
+ *
+ * Jobs run one at a time on a daemon thread. Hit-or-miss Monte Carlo splits
+ * its points into slices estimated in parallel on the common ForkJoin pool,
+ * whose default size leaves one core for the UI. The running estimate is
+ * published as the job message after every slice, in slice order.
+ *
+ * Cancelling a job makes the next evaluation of the function throw, so even a
+ * long integration stops within one chunk of points.
+ *
+ * What only depends on the equation and the bounds (continuity check, curve,
+ * range) is taken from the curve cache when possible. Hit-or-miss keeps its
+ * points for the last equation and bounds, so changing the number of points
+ * only evaluates the new ones.
+ *
+ * Above STORED_POINTS points, hit-or-miss and mean-value Monte Carlo stream
+ * their points through ParallelMonteCarlo without keeping them, up to
+ * MAX_POINTS. Only the first PREVIEW_POINTS points of the same seed are
+ * evaluated again to be drawn. The other methods keep every point, so they
+ * stop at STORED_POINTS.
+ */
+public final class IntegrationJob extends Task<IntegrationJob.Result> {
+
+    static final int CURVE_SAMPLES = 1000; // Steps of the plotted curve
+
+    static final int SLICES = 16; // Number of partial results published by hit-or-miss Monte Carlo
+
+    static final int MIN_SLICE_POINTS = 4096; // Smaller slices aren't worth a task
+
+    public static final long MAX_POINTS = 10_000_000_000L; // Points of the streaming methods, about a minute per core at 100M points/s
+
+    public static final int STORED_POINTS = 1_000_000; // Points of the methods that keep them, 16 MB of coordinates
+
+    static final int PREVIEW_POINTS = 100_000; // Points drawn when they are streamed
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "integration-job");
+        thread.setDaemon(true); // Never keeps the app alive after the window is closed
+        return thread;
+    });
+
+    private static SampleStream samples; // Hit-or-miss points of the last job, only used by the job thread
+
+    private final BatchFunction function; // Throws CancellationException once the job is cancelled
+    private final String equation;
+    private final LruCache<List<Object>, CurveInfo> curves;
+    private final PerformanceMonitor monitor;
+    private final PerformanceMonitor.CountingFunction counted; // The function before the cancellation check, counts evaluations
+    private final String method;
+    private final String endpoint;
+    private final double lowerBound;
+    private final double upperBound;
+    private final long numPoints;
+    private final long seed;
+
+    /**
+     * What a finished job hands back to the UI
+     */
+    public static final class Result {
+
+        private final String error; // Message for the user, null if the job succeeded
+        private final String area; // Text of the net area label
+        private final PointBuffer points; // Sample points to draw, empty for Riemann sums
+        private final double[] curveXs; // Plotted curve
+        private final double[] curveYs;
+
+        Result(String error, String area, PointBuffer points, double[] curveXs, double[] curveYs) {
+            this.error = error;
+            this.area = area;
+            this.points = points;
+            this.curveXs = curveXs;
+            this.curveYs = curveYs;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public String getArea() {
+            return area;
+        }
+
+        public PointBuffer getPoints() {
+            return points;
+        }
+
+        public double[] getCurveXs() {
+            return curveXs;
+        }
+
+        public double[] getCurveYs() {
+            return curveYs;
+        }
+    }
+
+    /**
+     * @param function the compiled function
+     * @param equation the equation the function was compiled from
+     * @param curves cache of the curve information, keyed by curveKey()
+     * @param monitor records the phases of the job
+     * @param method the integration method, as shown in the method ComboBox
+     * @param endpoint "Left" or "Right" for Riemann sums
+     * @param lowerBound the lower bound of integration
+     * @param upperBound the upper bound of integration
+     * @param numPoints the number of points or rectangles
+     */
+    public IntegrationJob(BatchFunction function, String equation, LruCache<List<Object>, CurveInfo> curves, PerformanceMonitor monitor,
+            String method, String endpoint, double lowerBound, double upperBound, long numPoints) {
+        this.counted = PerformanceMonitor.counting(function);
+        this.function = new Cancellable(counted);
+        this.monitor = monitor;
+        this.equation = equation;
+        this.curves = curves;
+        this.method = method;
+        this.endpoint = endpoint;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.numPoints = numPoints;
+        this.seed = new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Queues the job on the background thread
+     */
+    public void start() {
+        EXECUTOR.execute(this);
+    }
+
+    /**
+     * @param method the integration method, as shown in the method ComboBox
+     * @return the largest number of points the method accepts
+     */
+    public static long maxPoints(String method) {
+        if ("Riemann Sum".equals(method) || "Monte Carlo".equals(method) || "Mean Value Monte Carlo".equals(method)) {
+            return MAX_POINTS; // Nothing is stored per point
+        }
+        return STORED_POINTS;
+    }
+
+    /**
+     * @param equation the equation
+     * @param lowerBound the lower bound
+     * @param upperBound the upper bound
+     * @return the key of the curve cache
+     */
+    public static List<Object> curveKey(String equation, double lowerBound, double upperBound) {
+        return Arrays.asList(equation, lowerBound, upperBound);
+    }
+
+    @Override
+    protected Result call() throws Exception {
+        List<Object> key = curveKey(equation, lowerBound, upperBound);
+        CurveInfo curve = curves.get(key);
+        if (curve == null) {
+            curve = analyzeCurve();
+            if (curve == null) {
+                return null; // Cancelled
+            }
+            curves.put(key, curve);
+        }
+        if (!curve.getContinuityError().isEmpty()) {
+            return new Result(curve.getContinuityError(), "", null, null, null);
+        }
+
+        updateMessage("Integrating...");
+        PointBuffer points;
+        String area;
+        int n = (int) Math.min(numPoints, STORED_POINTS); // Every method below that stores its points gets at most STORED_POINTS
+
+        if ("Riemann Sum".equals(method)) {
+            points = new PointBuffer(0, true);
+            Quadrature.Rule rule = Quadrature.parse(endpoint);
+            long gridPoints = rule == null ? 1 : Math.max(1, Quadrature.gridPoints(rule, numPoints));
+            area = timed(Phase.INTEGRATION, () -> Integrator.integrateRiem(function, lowerBound, upperBound, numPoints, endpoint, done -> {
+                updateProgress(done, gridPoints);
+                updateMessage("Integrating... (" + (100 * done / gridPoints) + "%)");
+            }) + "");
+        } else if ("Mean Value Monte Carlo".equals(method) && numPoints > STORED_POINTS) {
+            area = streamed("Mean-value Monte Carlo", batch -> ParallelMonteCarlo.estimateMeanValue(batch, lowerBound, upperBound,
+                    numPoints, seed, this::progress));
+            points = timed(Phase.SAMPLING, () -> ParallelMonteCarlo.meanValuePoints(lowerBound, upperBound, PREVIEW_POINTS, seed));
+            timed(Phase.SAMPLING, () -> Integrator.estimateMeanValue(function, lowerBound, upperBound, points)); // Puts the preview on the curve
+        } else if ("Mean Value Monte Carlo".equals(method)) {
+            // No bounding box needed, only the x of each point is drawn. Same points as the streamed run of the seed
+            points = timed(Phase.SAMPLING, () -> ParallelMonteCarlo.meanValuePoints(lowerBound, upperBound, n, seed));
+
+            area = timed(Phase.INTEGRATION, () -> Integrator.estimateMeanValue(function, lowerBound, upperBound, points).toString());
+        } else if ("Stratified Monte Carlo".equals(method) && n >= 2) {
+            // Neyman allocation, the label also shows the variance reduction against uniform sampling
+            double[] range = range(curve);
+            int strata = StratifiedMonteCarlo.strataFor(n);
+            points = timed(Phase.SAMPLING, () -> StratifiedMonteCarlo.plotPoints(function, lowerBound, upperBound, range[0], range[1],
+                    n, strata, StratifiedMonteCarlo.Allocation.NEYMAN, seed));
+
+            area = timed(Phase.INTEGRATION, () -> StratifiedMonteCarlo.estimate(function, lowerBound, upperBound, range, points, strata).toString());
+        } else if ("Latin Hypercube Monte Carlo".equals(method) && n >= 2) {
+            double[] range = range(curve);
+            points = timed(Phase.SAMPLING, () -> StratifiedMonteCarlo.latinHypercubePoints(lowerBound, upperBound, range[0], range[1], n, seed));
+
+            area = timed(Phase.INTEGRATION, () -> StratifiedMonteCarlo.estimateLatinHypercube(function, lowerBound, upperBound, range, points).toString());
+        } else if ("Adaptive Gauss-Kronrod".equals(method)) {
+            // The number of points is the evaluation budget, the nodes are drawn on the curve to show where the work went
+            points = new PointBuffer(n, true);
+            area = timed(Phase.INTEGRATION, () -> GaussKronrod.integrate(function, lowerBound, upperBound, GaussKronrod.DEFAULT_ABSOLUTE_ERROR,
+                    GaussKronrod.DEFAULT_RELATIVE_ERROR, n, points).toString());
+            for (int i = 0; i < points.size(); i++) {
+                points.setInside(i, true);
+            }
+        } else if ("Importance Sampling Monte Carlo".equals(method)) {
+            // Points are drawn from a density fitted to |f| and drawn on the curve, so their spacing shows the density
+            ImportanceSampling.Proposal proposal = timed(Phase.SAMPLING, () -> ImportanceSampling.fitProposal(function, lowerBound, upperBound));
+            points = timed(Phase.SAMPLING, () -> ImportanceSampling.plotPoints(proposal, n, seed));
+
+            area = timed(Phase.INTEGRATION, () -> ImportanceSampling.estimate(function, proposal, points).toString());
+        } else if ("Quasi-Monte Carlo".equals(method)) {
+            double[] range = range(curve);
+            points = timed(Phase.SAMPLING, () -> QuasiMonteCarlo.plotPoints(lowerBound, upperBound, range[0], range[1], n,
+                    QuasiMonteCarlo.Sequence.SOBOL, seed));
+
+            area = timed(Phase.INTEGRATION, () -> QuasiMonteCarlo.estimate(function, lowerBound, upperBound, points).toString());
+        } else if (numPoints > STORED_POINTS) {
+            // Same seed as the kept points, so the drawn points are the first ones counted
+            SampleStream stream = samples(curve);
+            double[] range = range(curve);
+            area = streamed("Hit-or-miss Monte Carlo", batch -> ParallelMonteCarlo.estimate(batch, lowerBound, upperBound, range[0], range[1],
+                    numPoints, stream.getSeed(), this::progress));
+            try (PerformanceMonitor.Span span = monitor.start(Phase.SAMPLING, counted)) {
+                stream.evaluate(function, PREVIEW_POINTS);
+            }
+            points = stream.snapshot(PREVIEW_POINTS);
+        } else {
+            SampleStream stream = samples(curve);
+            area = hitOrMiss(stream).toString(); // Estimate ± 95% half width
+            points = stream.snapshot(n);
+        }
+
+        return new Result(null, area, points, curve.getCurveXs(), curve.getCurveYs());
+    }
+
+    /**
+     * Runs the continuity check and samples the curve for the chart
+     *
+     * @return the curve information, null if the job was cancelled
+     */
+    private CurveInfo analyzeCurve() {
+        updateMessage("Checking continuity...");
+        String continuityError = timed(Phase.CONTINUITY, () -> Integrator.checkContinuity(function, lowerBound, upperBound));
+        if (isCancelled()) {
+            return null; // The check swallowed the cancellation
+        }
+        if (!continuityError.isEmpty()) {
+            return new CurveInfo(continuityError, null, null);
+        }
+
+        try (PerformanceMonitor.Span span = monitor.start(Phase.CURVE, counted)) {
+            double dx = (upperBound - lowerBound) / CURVE_SAMPLES;
+            double[] curveXs = new double[CURVE_SAMPLES + 2]; // One extra in case rounding lets an extra step in
+            int count = 0;
+            for (double x = lowerBound; x <= upperBound && count < curveXs.length; x += dx) {
+                curveXs[count++] = x;
+            }
+            double[] curveYs = new double[count];
+            function.evaluate(curveXs, curveYs, 0, count);
+
+            return new CurveInfo("", Arrays.copyOf(curveXs, count), curveYs);
+        }
+    }
+
+    /**
+     * The range of the function, computed the first time a method needs it
+     */
+    private double[] range(CurveInfo curve) {
+        double[] range = curve.getRange();
+        if (range == null) {
+            range = timed(Phase.RANGE, () -> Integrator.getRange(function, lowerBound, upperBound));
+            curve.setRange(range);
+        }
+        return range;
+    }
+
+    /**
+     * Runs a step of the job as a phase of the performance monitor
+     */
+    private <T> T timed(Phase phase, Supplier<T> step) {
+        try (PerformanceMonitor.Span span = monitor.start(phase, counted)) {
+            return step.get();
+        }
+    }
+
+    /**
+     * Runs a streaming estimator as the integration phase
+     *
+     * @param name the method, as recorded by the profiling event
+     * @param estimator runs the estimator on the function it is given,
+     * possibly wrapped by the profiling event
+     * @return the estimate ± its 95% half width
+     */
+    private String streamed(String name, Function<BatchFunction, MonteCarloEstimator> estimator) {
+        try (PerformanceMonitor.Span span = monitor.start(Phase.INTEGRATION, counted)) {
+            ProfilingEvents.Integration event = new ProfilingEvents.Integration();
+            String area = estimator.apply(event.begin(function)).toString();
+            event.end(lowerBound, upperBound, name, numPoints);
+            return area;
+        }
+    }
+
+    /**
+     * Publishes the running estimate of a streaming estimator
+     */
+    private void progress(MonteCarloEstimator estimator) {
+        updateProgress(estimator.getCount(), numPoints);
+        updateMessage(estimator + " (" + (100 * estimator.getCount() / numPoints) + "%)");
+    }
+
+    /**
+     * The hit-or-miss points kept for the equation and bounds of the job,
+     * started over if the last job was for others
+     */
+    private SampleStream samples(CurveInfo curve) {
+        SampleStream stream = samples;
+        if (stream == null || !stream.isFor(equation, lowerBound, upperBound)) {
+            double[] range = range(curve);
+            stream = new SampleStream(equation, lowerBound, upperBound, range[0], range[1], seed);
+            samples = stream;
+        }
+        return stream;
+    }
+
+    /**
+     * Hit-or-miss Monte Carlo on the first numPoints points of a stream
+     */
+    private MonteCarloEstimator hitOrMiss(SampleStream stream) throws Exception {
+        try (PerformanceMonitor.Span span = monitor.start(Phase.SAMPLING, counted)) {
+            stream.generate((int) numPoints);
+        }
+        try (PerformanceMonitor.Span span = monitor.start(Phase.INTEGRATION, counted)) {
+            // Same event as Integrator.integrateMonteCarlo, only the new points count as evaluations
+            ProfilingEvents.Integration event = new ProfilingEvents.Integration();
+            MonteCarloEstimator estimator = evaluateMissing(stream, event.begin(function));
+            event.end(lowerBound, upperBound, "Hit-or-miss Monte Carlo", numPoints);
+            return estimator;
+        }
+    }
+
+    /**
+     * Evaluates the points of the stream up to numPoints that weren't yet. They
+     * are cut into slices estimated in parallel, publishing the running
+     * estimate as the slices complete.
+     *
+     * @param function the function of the job, possibly wrapped by a
+     * profiling event
+     */
+    private MonteCarloEstimator evaluateMissing(SampleStream stream, BatchFunction function) throws Exception {
+        int first = stream.getEvaluated();
+        int missing = Math.max(0, (int) numPoints - first);
+        PointBuffer points = stream.points();
+
+        int slices = Math.max(1, Math.min(SLICES, missing / MIN_SLICE_POINTS));
+        List<Future<BitSet>> futures = new ArrayList<>();
+
+        for (int s = 0; s < slices && missing > 0; s++) {
+            int from = first + (int) ((long) s * missing / slices);
+            int to = first + (int) ((long) (s + 1) * missing / slices);
+            futures.add(ForkJoinPool.commonPool().submit(() -> {
+                BitSet inside = new BitSet(to - from);
+                Integrator.estimateMonteCarlo(function, stream.getRectArea(), points, from, to, inside);
+                return inside;
+            }));
+        }
+
+        // Record in slice order, so the stream is only written by this thread and keeps every finished slice
+        try {
+            for (int s = 0; s < futures.size(); s++) {
+                int from = first + (int) ((long) s * missing / slices);
+                int to = first + (int) ((long) (s + 1) * missing / slices);
+                stream.record(from, to, futures.get(s).get());
+
+                updateProgress(s + 1, slices);
+                updateMessage(stream.estimator(to) + " (" + (100 * (s + 1) / slices) + "%)");
+            }
+        } finally {
+            for (Future<BitSet> future : futures) {
+                future.cancel(false); // Only matters if a slice failed or the job was interrupted
+            }
+        }
+        return stream.estimator((int) numPoints);
+    }
+
+    /**
+     * Stops the job at the next evaluation once it is cancelled
+     */
+    private final class Cancellable implements BatchFunction {
+
+        private final BatchFunction delegate;
+
+        Cancellable(BatchFunction delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public double applyAsDouble(double x) {
+            checkCancelled();
+            return delegate.applyAsDouble(x);
+        }
+
+        @Override
+        public void evaluate(double[] xs, double[] out, int from, int to) {
+            checkCancelled();
+            delegate.evaluate(xs, out, from, to);
+        }
+
+        @Override
+        public String getEquation() {
+            return delegate.getEquation();
+        }
+
+        private void checkCancelled() {
+            if (isCancelled()) {
+                throw new CancellationException("Integration job cancelled");
+            }
+        }
+    }
+}
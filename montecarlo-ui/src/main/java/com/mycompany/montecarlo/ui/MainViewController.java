@@ -0,0 +1,844 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.montecarlo.ui;
+
+import com.mycompany.montecarlo.BatchFunction;
+import com.mycompany.montecarlo.ExpressionCompiler;
+import com.mycompany.montecarlo.Integrator;
+import com.mycompany.montecarlo.LruCache;
+import com.mycompany.montecarlo.PerformanceMonitor;
+import com.mycompany.montecarlo.PointBuffer;
+import com.mycompany.montecarlo.ProfilingEvents;
+import com.mycompany.montecarlo.Quadrature;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.geometry.Point2D;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.StackPane;
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+
+/**
+ * Main controller for the Monte Carlo / Riemann Sum visualization UI
+ *
+ * - Sets up a LineChart inside a StackPane - Parses the user-inputted function
+ * f(x) using exp4j - Automatically re-plots the function when the equation or
+ * bounds change - Validates input and reports error messages
+ */
+public class MainViewController {
+
+    static final int FUNCTION_CACHE_SIZE = 256; // Compiled equations kept, each is a small generated class
+
+    static final long CURVE_CACHE_BYTES = 8L << 20; // Memory for cached curves, about 500 equation/bounds pairs
+
+    static final int MAX_DRAWN_INTERVALS = 100_000; // More rectangles are drawn from a coarser grid, they'd be thinner than a pixel
+
+    // FXML References
+    @FXML
+    private StackPane graphPane; // The Pane containing the LineChart
+
+    @FXML
+    private Label errorMessage; // Label displaying errors
+
+    @FXML
+    private Label endpointsLabel; //Label for endpoint selection (visible only for Riemann Sum method)
+
+    @FXML
+    private ComboBox<String> endpointCombo; // ComboBox for selecting the rule of the Riemann Sum: endpoints, midpoint, trapezoid, Simpson or Romberg
+
+    @FXML
+    private TextField equationText; // The equation TextField
+
+    @FXML
+    private TextField lowerBoundText; // The TextField for the lower bound
+
+    @FXML
+    private TextField upperBoundText; // The TextField for the upper bound
+
+    @FXML
+    private ComboBox<String> methodCombo; // Dropdown for the integration method selection
+
+    @FXML
+    private TextField numPointsText; // The TextField for the number of points to compute
+
+    @FXML
+    private Label netAreaValue; // Label that displays the final area calculation
+
+    @FXML
+    private Label performanceText; // Contents of the collapsible performance panel
+
+    // Variables
+    private LineChart<Number, Number> chart; // Line chart that displays f(x)
+
+    private NumberAxis xAxis; // X-axis (domain) for the chart
+
+    private NumberAxis yAxis; // Y-axis (range) for the chart
+
+    private BatchFunction currentFunction; // The current equation compiled to bytecode, used by every loop
+
+    private double lowerBound; // The lower bound of the function
+
+    private double upperBound; // The upper bound of the function
+
+    private long numPoints; // The number of points of integration estimation
+
+    private PointBuffer plotPoints = new PointBuffer(0, true); // The Monte Carlo sample points, with inside/outside flags
+
+    private IntegrationJob runningJob; // The background job computing the current inputs, null once it finished
+
+    private final RecomputeScheduler<List<Object>> recompute = new RecomputeScheduler<>(RecomputeScheduler.DEFAULT_QUIET_MILLIS,
+            Platform::runLater, inputs -> buildAndVerify(equationText.getText())); // Runs buildAndVerify once the inputs settle
+
+    private final PlotRaster raster = new PlotRaster(0, 0); // Pixels of the points or Riemann slices, one buffer whatever their number
+
+    private final ImageView sampleLayer = new ImageView(); // Shows the raster over the plot area of the chart
+
+    private final LruCache<String, BatchFunction> functions = new LruCache<>(FUNCTION_CACHE_SIZE, function -> 1); // Compiled equations
+
+    private final PerformanceMonitor monitor = new PerformanceMonitor(); // Time, evaluations and allocations of each phase of an update
+
+    private final LruCache<List<Object>, CurveInfo> curves = new LruCache<>(CURVE_CACHE_BYTES, CurveInfo::weight); // Keyed by IntegrationJob.curveKey()
+
+    private WritableImage sampleImage; // Image behind sampleLayer, replaced only when the plot area changes size
+
+    /**
+     * - Initialize ComboBoxes - Create and configure the chart - Bind the chart
+     * to the StackPane so it always fills it - Add listeners so that the graph
+     * updates automatically
+     */
+    @FXML
+    private void initialize() {
+        // The layer is positioned by hand over the plot area, and must not catch the mouse
+        sampleLayer.setManaged(false);
+        sampleLayer.setMouseTransparent(true);
+
+        // Adds the ComboBox options
+        methodCombo.getItems().addAll("Monte Carlo", "Mean Value Monte Carlo", "Stratified Monte Carlo", "Latin Hypercube Monte Carlo",
+                "Importance Sampling Monte Carlo", "Quasi-Monte Carlo", "Riemann Sum", "Adaptive Gauss-Kronrod");
+        endpointCombo.getItems().addAll("Left", "Right", "Midpoint", "Trapezoid", "Simpson", "Romberg");
+
+        // Endpoints controls not visible until "Riemann Sum" method is selected
+        endpointsLabel.setVisible(false);
+        endpointCombo.setVisible(false);
+
+        // Creates axes and chart
+        xAxis = new NumberAxis();
+        xAxis.setLabel("x");
+        xAxis.setAutoRanging(false);
+
+        yAxis = new NumberAxis();
+        yAxis.setLabel("f(x)");
+        yAxis.setAutoRanging(true);
+
+        chart = new LineChart<>(xAxis, yAxis);
+        chart.setLegendVisible(false);
+        chart.setCreateSymbols(false);
+        chart.setAnimated(false);
+
+        // Make the chart fill the graphPane
+        chart.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+        chart.prefWidthProperty().bind(graphPane.widthProperty());
+        chart.prefHeightProperty().bind(graphPane.heightProperty());
+        graphPane.getChildren().add(chart);
+
+        // Every input goes through the scheduler, so a burst of edits gives a single update
+        equationText.textProperty().addListener((obs, oldValue, newValue) -> inputChanged());
+        lowerBoundText.textProperty().addListener((obs, oldValue, newValue) -> inputChanged());
+        upperBoundText.textProperty().addListener((obs, oldValue, newValue) -> inputChanged());
+        numPointsText.textProperty().addListener((obs, oldValue, newValue) -> inputChanged());
+        methodCombo.valueProperty().addListener((obs, oldValue, newValue) -> inputChanged());
+        endpointCombo.valueProperty().addListener((obs, oldValue, newValue) -> inputChanged());
+    }
+
+    /**
+     * Called by every input listener. Cancels the running job right away if
+     * the inputs changed, the update itself runs after the quiet period.
+     */
+    private void inputChanged() {
+        if (recompute.request(effectiveInputs()) && runningJob != null) {
+            cancelJob();
+            recompute.invalidate(); // Coming back to the same inputs must start a new job
+        }
+    }
+
+    /**
+     * The inputs as they affect the result: numbers are compared by value, so
+     * "1" and "1.0" are the same bound
+     *
+     * @return the equation, method, endpoint, bounds and number of points
+     */
+    private List<Object> effectiveInputs() {
+        String endpoint = "Riemann Sum".equals(methodCombo.getValue()) ? endpointCombo.getValue() : null; // Only Riemann sums use it
+        return Arrays.asList(equationText.getText() == null ? null : equationText.getText().trim(), methodCombo.getValue(), endpoint,
+                effectiveNumber(lowerBoundText.getText()), effectiveNumber(upperBoundText.getText()), effectiveInteger(numPointsText.getText()));
+    }
+
+    private static Object effectiveNumber(String text) {
+        try {
+            return Double.parseDouble(text); // Parsed exactly like buildAndVerify does
+        } catch (NumberFormatException | NullPointerException e) {
+            return text; // Invalid input, it still matters for the error message
+        }
+    }
+
+    private static Object effectiveInteger(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+
+    /**
+     * @return how many updates were skipped because edits came in a burst or
+     * didn't change the inputs
+     */
+    public long getSavedRecomputations() {
+        return recompute.getSaved();
+    }
+
+    /**
+     * Parses the user-entered equation into an Expression using exp4j. Tries to
+     * plot it immediately if bounds are present and valid.
+     *
+     * @param equation the string from equationText
+     */
+    private void buildAndVerify(String equation) {
+        cancelJob();
+        undoGraphing();
+
+        // Checking lower bound and number of points and integration type
+        if (methodCombo.getValue() == null) {
+            errorMessage.setText("Integration type not specified");
+            chart.getData().clear();
+            return;
+        } else if ("Riemann Sum".equals(methodCombo.getValue()) && endpointCombo.getValue() == null) {
+            errorMessage.setText("Riemann Sum direction not specified");
+            chart.getData().clear();
+            return;
+        }
+
+        // Validate lower bound
+        try {
+            lowerBound = Double.parseDouble(lowerBoundText.getText());
+        } catch (NumberFormatException e) {
+            errorMessage.setText("Lower bound must be a valid double");
+            chart.getData().clear();
+            return;
+        }
+
+        // Validate upper bound
+        try {
+            upperBound = Double.parseDouble(upperBoundText.getText());
+        } catch (NumberFormatException e) {
+            errorMessage.setText("Upper bound must be a valid double");
+            chart.getData().clear();
+            return;
+        }
+
+        // Validate number of points
+        try {
+            numPoints = Long.parseLong(numPointsText.getText());
+        } catch (NumberFormatException e) {
+            errorMessage.setText("Number of points must be a valid integer");
+            chart.getData().clear();
+            return;
+        }
+
+        // Order check
+        if (lowerBound >= upperBound) {
+            errorMessage.setText("Lower bound must be strictly less than upper bound");
+            chart.getData().clear();
+            return;
+        }
+
+        // Checks to see if the bounds can be worked with numerically
+        String boundsError = Integrator.checkBounds(lowerBound, upperBound);
+        if (!boundsError.isEmpty()) {
+            errorMessage.setText(boundsError);
+            chart.getData().clear();
+            return;
+        }
+
+        // Checks to see if the method can handle that many points
+        String pointsError = checkNumPoints(methodCombo.getValue(), numPoints);
+        if (!pointsError.isEmpty()) {
+            errorMessage.setText(pointsError);
+            chart.getData().clear();
+            return;
+        }
+
+        // Checking to see if equation is valid
+        // If the equation box is empty, clear everything
+        if (equation == null || equation.isBlank()) {
+            currentFunction = null;
+            chart.getData().clear();
+
+            errorMessage.setText("No equation selected");
+            return;
+        }
+
+        // Making sure the function doesn't contain tan or cot
+        if (equation.contains("tan") || equation.contains("cot")) {
+            currentFunction = null;
+            chart.getData().clear();
+
+            errorMessage.setText("Tangent and cotangent functions are not supported");
+            return;
+        }
+
+        if (equation.contains("/")) {
+            currentFunction = null;
+            chart.getData().clear();
+
+            errorMessage.setText("Rational functions aren't supported");
+            return;
+        }
+
+        // Checking to see if equation syntax is valid
+        try {
+            monitor.beginRun();
+            try (PerformanceMonitor.Span span = monitor.start(PerformanceMonitor.Phase.PARSE)) {
+                currentFunction = compile(equation);
+            }
+
+        } catch (Exception e) {
+            currentFunction = null;
+            chart.getData().clear();
+
+            errorMessage.setText("Invalid function");
+            return;
+        }
+
+        errorMessage.setText("");
+
+        // The continuity check, the integration and the curve run in the background
+        startJob(new IntegrationJob(currentFunction, equation, curves, monitor, methodCombo.getValue(), endpointCombo.getValue(), lowerBound, upperBound, numPoints));
+    }
+
+    /**
+     * Compiles an equation, or takes it from the cache if it was compiled
+     * recently. Compiling parses the equation, so invalid ones still throw.
+     *
+     * @param equation the equation
+     * @return the compiled function
+     */
+    private BatchFunction compile(String equation) {
+        BatchFunction function = functions.get(equation);
+        if (function == null) {
+            function = ExpressionCompiler.compile(equation);
+            functions.put(equation, function);
+        }
+        return function;
+    }
+
+    /**
+     * Runs a job in the background, replacing the one already running. The
+     * area label shows the progress and partial results of the job.
+     *
+     * @param job the job to run
+     */
+    private void startJob(IntegrationJob job) {
+        cancelJob();
+        runningJob = job;
+
+        job.messageProperty().addListener((obs, oldValue, newValue) -> {
+            if (job == runningJob) {
+                netAreaValue.setText(newValue);
+            }
+        });
+        job.setOnSucceeded(event -> {
+            if (job == runningJob) { // A job can finish just before it is replaced
+                runningJob = null;
+                showResult(job.getValue());
+            }
+        });
+        job.setOnFailed(event -> {
+            if (job == runningJob) {
+                runningJob = null;
+                currentFunction = null;
+                chart.getData().clear();
+                netAreaValue.setText("");
+
+                errorMessage.setText("Invalid function");
+            }
+        });
+        job.start();
+    }
+
+    /**
+     * Stops the running job, if any. Its results are never shown.
+     */
+    private void cancelJob() {
+        if (runningJob != null) {
+            runningJob.cancel();
+            runningJob = null;
+            netAreaValue.setText(""); // Drop the progress message
+        }
+    }
+
+    /**
+     * Shows the result of a finished job
+     *
+     * @param result the result of the job
+     */
+    private void showResult(IntegrationJob.Result result) {
+        if (result.getError() != null) {
+            currentFunction = null;
+            chart.getData().clear();
+            netAreaValue.setText("");
+
+            errorMessage.setText(result.getError());
+            return;
+        }
+
+        plotPoints = result.getPoints();
+        netAreaValue.setText(result.getArea());
+
+        // Plot the function using the current bounds
+        plotFunction(result.getCurveXs(), result.getCurveYs());
+    }
+
+    /**
+     * Plots the sampled function on the LineChart, using the bounds in
+     * lowerBoundText and upperBoundText, then draws the points or rectangles
+     * over it
+     *
+     * @param xs the x values of the curve
+     * @param ys the function values at xs
+     */
+    private void plotFunction(double[] xs, double[] ys) {
+        // Update upper and lower bounds
+        xAxis.setLowerBound(lowerBound);
+        xAxis.setUpperBound(upperBound);
+
+        try (PerformanceMonitor.Span span = monitor.start(PerformanceMonitor.Phase.PLOT)) {
+            ProfilingEvents.Render event = new ProfilingEvents.Render();
+            event.begin(currentFunction); // The curve was evaluated by the job, only the equation is needed
+
+            // Create a new series and sample the function between [a, b]
+            XYChart.Series<Number, Number> series = new XYChart.Series<>();
+            chart.getData().clear(); // remove any old series
+
+            // The curve was sampled by the job, with a fixed number of points for a smooth curve
+            for (int i = 0; i < xs.length; i++) {
+                series.getData().add(new XYChart.Data<>(xs[i], ys[i]));
+            }
+
+            // Add the series
+            chart.getData().add(series);
+            errorMessage.setText("");
+
+            chart.applyCss();
+            chart.layout();
+            event.end(lowerBound, upperBound, "Curve", xs.length);
+        }
+
+        try (PerformanceMonitor.Span span = monitor.start(PerformanceMonitor.Phase.DISPLAY)) {
+            if ("Riemann Sum".equals(methodCombo.getValue())) {
+                riemannDisplay();
+            } else {
+                monteCarloDisplay();
+            }
+        }
+        showPerformance();
+    }
+
+    /**
+     * Fills the performance panel with the latest breakdown, the rolling
+     * percentiles and how much the caches and the debouncing saved
+     */
+    private void showPerformance() {
+        performanceText.setText(monitor.report()
+                + String.format("Curve cache: %d hits, %d misses, %d KB%n", curves.getHits(), curves.getMisses(), curves.getWeight() / 1024)
+                + String.format("Compiled equations: %d hits, %d misses%n", functions.getHits(), functions.getMisses())
+                + "Recomputations skipped: " + getSavedRecomputations());
+    }
+
+    /**
+     * @return the performance monitor of the view, for reading the phases
+     * programmatically
+     */
+    public PerformanceMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Displays the Riemann Sum method of integration
+     */
+    private void riemannDisplay() {
+        // Checking to see which rule is used
+        Quadrature.Rule rule = Quadrature.parse(endpointCombo.getValue());
+
+        if (rule == null || !prepareRaster()) {
+            return;
+        }
+        ProfilingEvents.Render event = new ProfilingEvents.Render();
+        BatchFunction function = event.begin(currentFunction);
+
+        // Beyond MAX_DRAWN_INTERVALS the rectangles are thinner than a pixel, a coarser grid looks the same
+        int drawn = (int) Math.min(numPoints, MAX_DRAWN_INTERVALS);
+
+        if (rule == Quadrature.Rule.LEFT || rule == Quadrature.Rule.RIGHT || rule == Quadrature.Rule.MIDPOINT) {
+            // Rectangles, sampled at the left, right or middle of each interval
+            double offset = rule == Quadrature.Rule.LEFT ? 0 : rule == Quadrature.Rule.RIGHT ? 1 : 0.5;
+            double dx = (upperBound - lowerBound) / drawn; // Width of the rectangle
+
+            double[] heights = new double[BatchFunction.CHUNK_SIZE];
+            for (int start = 0; start < drawn; start += heights.length) {
+                int length = Math.min(heights.length, drawn - start);
+                for (int j = 0; j < length; j++) {
+                    heights[j] = lowerBound + (start + j + offset) * dx;
+                }
+                function.evaluate(heights, heights, 0, length);
+
+                for (int j = 0; j < length; j++) {
+                    double x0 = lowerBound + (start + j) * dx; // Bottom left point of the rectangle
+                    raster.addSlice(x0, x0 + dx, heights[j]);
+                }
+            }
+        } else if (rule == Quadrature.Rule.SIMPSON) {
+            // One parabola per pair of intervals
+            long intervals = Quadrature.simpsonIntervals(drawn);
+            addPanels(function, intervals, 2);
+        } else {
+            // Trapezoids, Romberg shows the trapezoids of its finest level
+            long intervals = rule == Quadrature.Rule.ROMBERG ? Quadrature.rombergIntervals(drawn) : drawn;
+            addPanels(function, intervals, 1);
+        }
+
+        raster.drawSlices();
+        showRaster();
+        event.end(lowerBound, upperBound, rule.toString(), drawn);
+    }
+
+    /**
+     * Adds the panels of a trapezoid or Simpson rule to the raster
+     *
+     * @param function the function evaluated at the nodes
+     * @param intervals number of intervals of the grid
+     * @param perPanel intervals per panel, 1 for straight tops and 2 for
+     * parabolas through 3 nodes
+     */
+    private void addPanels(BatchFunction function, long intervals, int perPanel) {
+        double dx = (upperBound - lowerBound) / intervals;
+        double[] nodes = new double[(int) intervals + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = lowerBound + i * dx;
+        }
+        nodes[nodes.length - 1] = upperBound;
+        function.evaluate(nodes, nodes, 0, nodes.length);
+
+        for (int i = 0; i + perPanel < nodes.length; i += perPanel) {
+            double x0 = lowerBound + i * dx;
+            double yMid = perPanel == 2 ? nodes[i + 1] : (nodes[i] + nodes[i + 1]) / 2;
+            raster.addPanel(x0, x0 + perPanel * dx, nodes[i], yMid, nodes[i + perPanel]);
+        }
+    }
+
+    /**
+     * Displays the Monte Carlo estimation method
+     */
+    private void monteCarloDisplay() {
+        if (!prepareRaster()) {
+            return;
+        }
+
+        ProfilingEvents.Render event = new ProfilingEvents.Render();
+        event.begin(currentFunction); // Whether each point is inside the area was already decided by the integrator
+        raster.drawPoints(plotPoints);
+        showRaster();
+        event.end(lowerBound, upperBound, methodCombo.getValue(), plotPoints.size());
+    }
+
+    /**
+     * Sizes the raster to the plot area of the chart and works out how the
+     * math coordinates map to its pixels
+     *
+     * @return false if the plot area has no size yet
+     */
+    private boolean prepareRaster() {
+        // Creating all the variables to help with the coordinate conversion
+        Node plotArea = chart.lookup(".chart-plot-background"); // The visual area behind the chart
+        Pane plotContent = (Pane) plotArea.getParent(); // Gets the StackPane (Parent of chart) and treats it as a pane
+        Bounds area = plotArea.getBoundsInParent(); // The plot area in plotContent coordinates
+
+        int width = (int) Math.ceil(area.getWidth());
+        int height = (int) Math.ceil(area.getHeight());
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        raster.resize(width, height);
+
+        // The axes are linear, so converting two points per axis is enough for every point
+        double leftX = toPlotContentX(plotContent, lowerBound);
+        double rightX = toPlotContentX(plotContent, upperBound);
+        double zeroY = toPlotContentY(plotContent, 0);
+        double oneY = toPlotContentY(plotContent, 1);
+
+        double xScale = (rightX - leftX) / (upperBound - lowerBound);
+        raster.setTransform(xScale, leftX - lowerBound * xScale - area.getMinX(), oneY - zeroY, zeroY - area.getMinY());
+
+        sampleLayer.setLayoutX(area.getMinX());
+        sampleLayer.setLayoutY(area.getMinY());
+        if (sampleLayer.getParent() != plotContent) {
+            plotContent.getChildren().add(sampleLayer);
+        }
+        return true;
+    }
+
+    /**
+     * Converts an x value to plotContent coordinates
+     */
+    private double toPlotContentX(Pane plotContent, double x) {
+        // Converting the math coordinates to Scene Coordinates, then into the plotContent (Pane) coordinates
+        Point2D scene = xAxis.localToScene(xAxis.getDisplayPosition(x), 0);
+        return plotContent.sceneToLocal(scene).getX();
+    }
+
+    /**
+     * Converts a y value to plotContent coordinates
+     */
+    private double toPlotContentY(Pane plotContent, double y) {
+        Point2D scene = yAxis.localToScene(0, yAxis.getDisplayPosition(y));
+        return plotContent.sceneToLocal(scene).getY();
+    }
+
+    /**
+     * Copies the raster into the image shown over the chart
+     */
+    private void showRaster() {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        if (sampleImage == null || (int) sampleImage.getWidth() != width || (int) sampleImage.getHeight() != height) {
+            sampleImage = new WritableImage(width, height);
+        }
+        sampleImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), raster.pixels(), 0, width);
+        sampleLayer.setImage(sampleImage);
+    }
+
+    /**
+     * Removes all the shapes displayed when called
+     */
+    private void undoGraphing() {
+        raster.clear();
+        sampleLayer.setImage(null);
+    }
+
+    /**
+     * Called when the integration method ComboBox value changes Shows or hides
+     * the endpoint controls when "Riemann Sum" is selected
+     */
+    @FXML
+    private void onMethodSelected(ActionEvent event) {
+        String selected = methodCombo.getValue();
+
+        if (selected == null) {
+            return;
+        }
+
+        if (selected.equals("Riemann Sum")) {
+            endpointsLabel.setVisible(true);
+            endpointCombo.setVisible(true);
+        } else {
+            endpointsLabel.setVisible(false);
+            endpointCombo.setVisible(false);
+        }
+    }
+
+    /**
+     * Called when the "Clear" button is pressed Resets all text fields,
+     * ComboBoxes, the chart and the error label
+     */
+    @FXML
+    private void clearOnAction(ActionEvent event) {
+        lowerBoundText.clear();
+        upperBoundText.clear();
+        numPointsText.clear();
+        equationText.clear();
+        methodCombo.getSelectionModel().clearSelection();
+        endpointCombo.getSelectionModel().clearSelection();
+        endpointsLabel.setVisible(false);
+        endpointCombo.setVisible(false);
+
+        cancelJob();
+        currentFunction = null;
+        chart.getData().clear();
+        errorMessage.setText("");
+        netAreaValue.setText("");
+    }
+
+    /**
+     * Checks the number of points against what the method can handle: the
+     * methods that stream their points go up to IntegrationJob.MAX_POINTS,
+     * the others keep every point and stop at IntegrationJob.STORED_POINTS
+     *
+     * @param integrationMethod the selected integration method
+     * @param numPoints the number of points
+     * @return the error message, or "" if the number is fine
+     */
+    static String checkNumPoints(String integrationMethod, long numPoints) {
+        long maxPoints = IntegrationJob.maxPoints(integrationMethod);
+        if (numPoints <= 0 || numPoints > maxPoints) {
+            return String.format(Locale.ROOT, "Number of points must be between 1 and %,d", maxPoints);
+        }
+        return "";
+    }
+
+    /**
+     * Executes the core validation and calculation logic without any JavaFX
+     * dependencies. Used only for testing the method.
+     * @param equation The mathematical function string.
+     * @param integrationMethod The selected integration method
+     * @param riemannEndpoint The selected Riemann Sum endpoint
+     * @param lowerBoundText String representation of the lower bound.
+     * @param upperBoundText String representation of the upper bound.
+     * @param numPointsText String representation of the number of points.
+     * @param netAreaText the string that is modified when there's an error
+     * @return The error message string, or an empty string ("") if validation
+     * is successful.
+     */
+    public static String buildAndVerifyCore(
+            String equation,
+            String integrationMethod,
+            String riemannEndpoint,
+            String lowerBoundText,
+            String upperBoundText,
+            String numPointsText,
+            String[] errorText) {
+        // Local variables to hold parsed values and Expression
+        double lowerBound, upperBound;
+        long numPoints;
+        Expression currentExpression;
+        BatchFunction currentFunction;
+
+        Runnable clearState = () -> {
+            errorText[0] = ""; // Clear area on error
+        };
+
+        // 1. Integration Type Check
+        if (integrationMethod == null) {
+            clearState.run();
+            return "Integration type not specified";
+        } else if ("Riemann Sum".equals(integrationMethod) && riemannEndpoint == null) {
+            clearState.run();
+            return "Riemann Sum direction not specified";
+        }
+
+        // 2. Validate bounds and points (Parsing)
+        try {
+            lowerBound = Double.parseDouble(lowerBoundText);
+        } catch (NumberFormatException e) {
+            clearState.run();
+            return "Lower bound must be a valid double";
+        }
+
+        try {
+            upperBound = Double.parseDouble(upperBoundText);
+        } catch (NumberFormatException e) {
+            clearState.run();
+            return "Upper bound must be a valid double";
+        }
+
+        try {
+            numPoints = Long.parseLong(numPointsText);
+        } catch (NumberFormatException e) {
+            clearState.run();
+            return "Number of points must be a valid integer";
+        }
+
+        // 3. Order check
+        if (lowerBound >= upperBound) {
+            clearState.run();
+            return "Lower bound must be strictly less than upper bound";
+        }
+
+        // 4. Bound validity check
+        String boundsError = Integrator.checkBounds(lowerBound, upperBound);
+        if (!boundsError.isEmpty()) {
+            clearState.run();
+            return boundsError;
+        }
+
+        // 5. Number of points check
+        String pointsError = checkNumPoints(integrationMethod, numPoints);
+        if (!pointsError.isEmpty()) {
+            clearState.run();
+            return pointsError;
+        }
+
+        // 6. Equation existence check
+        if (equation == null || equation.isBlank()) {
+            currentExpression = null;
+            clearState.run();
+            return "No equation selected";
+        }
+
+        // 7. Restricted function check (tan/cot)
+        if (equation.contains("tan") || equation.contains("cot")) {
+            currentExpression = null;
+            clearState.run();
+            return "Tangent and cotangent functions are not supported";
+        }
+
+        // 8. Restricted function check (rational)
+        if (equation.contains("/")) {
+            currentExpression = null;
+            clearState.run();
+            return "Rational functions aren't supported";
+        }
+
+        // 9. Equation syntax check
+        try {
+            currentExpression = new ExpressionBuilder(equation).variable("x").build();
+            currentFunction = ExpressionCompiler.compile(equation);
+        } catch (Exception e) {
+            currentExpression = null;
+            clearState.run();
+            return "Invalid function";
+        }
+
+        // 10. Continuity/Evaluation check
+        String continuityError = Integrator.checkContinuity(currentFunction, lowerBound, upperBound);
+        if (!continuityError.isEmpty()) {
+            clearState.run();
+            return continuityError;
+        }
+
+        // 11. Calculation (Simulated)
+        double simulatedArea = 0.5;
+
+        if ("Riemann Sum".equals(integrationMethod)) {
+            errorText[0] = String.valueOf(simulatedArea);
+        } else {
+            errorText[0] = String.valueOf(simulatedArea);
+        }
+
+        // 12. Success
+        return "";
+    }
+    
+    @FXML
+    void exitOnAction(ActionEvent event) {
+        Platform.exit();
+    }
+}
@@ -0,0 +1,236 @@
+package com.mycompany.montecarlo.ui;
+
+import com.mycompany.montecarlo.PointBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * ARGB pixel buffer the sample points and Riemann slices are drawn into,
+ * instead of one scene graph node per point or slice.
+ *
+ * The buffer has the size of the chart plot area, so memory and the cost of
+ * showing it don't depend on the number of points. Drawing a point costs a few
+ * array writes. Slices are merged per pixel column while they are added, which
+ * keeps the state at a few ints per column however many slices there are.
+ * Slices can have a flat, straight or parabolic top, for the different
+ * quadrature rules.
+ */
+public final class PlotRaster {
+
+    public static final int INSIDE_COLOR = 0x8C00FF00; // Green, 55% opaque
+    public static final int OUTSIDE_COLOR = 0xFFFF0000; // Red
+    public static final int SLICE_FILL_COLOR = 0x59FFD700; // Gold, 35% opaque
+    public static final int SLICE_EDGE_COLOR = 0xFFFFD700; // Gold
+
+    static final int POINT_SIZE = 2; // Points are 2x2 pixel squares
+
+    static final int MIN_SEPARATED_SLICE_WIDTH = 3; // Narrower slices are drawn without a border between them
+
+    private int width;
+    private int height;
+    private int[] pixels; // Row-major non-premultiplied ARGB
+
+    // Pixel = value * scale + offset, the axes of the chart are linear
+    private double xScale = 1;
+    private double xOffset;
+    private double yScale = 1;
+    private double yOffset;
+
+    // Union of the slices added since the last clear: rows sliceTop[c]..sliceBottom[c] of column c
+    private int[] sliceTop;
+    private int[] sliceBottom;
+    private final BitSet separators = new BitSet(); // Columns where a slice starts
+
+    /**
+     * @param width width in pixels
+     * @param height height in pixels
+     */
+    public PlotRaster(int width, int height) {
+        resize(width, height);
+    }
+
+    /**
+     * Changes the size, reusing the buffer if it doesn't change. Clears the
+     * raster.
+     *
+     * @param width width in pixels
+     * @param height height in pixels
+     */
+    public void resize(int width, int height) {
+        if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid raster size: " + width + "x" + height);
+        }
+        if (pixels == null || width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            pixels = new int[width * height];
+            sliceTop = new int[width];
+            sliceBottom = new int[width];
+        }
+        clear();
+    }
+
+    /**
+     * Makes every pixel transparent and forgets the slices
+     */
+    public void clear() {
+        Arrays.fill(pixels, 0);
+        Arrays.fill(sliceTop, Integer.MAX_VALUE);
+        Arrays.fill(sliceBottom, Integer.MIN_VALUE);
+        separators.clear();
+    }
+
+    /**
+     * Sets how function coordinates map to pixels
+     *
+     * @param xScale pixels per unit of x
+     * @param xOffset pixel column of x = 0
+     * @param yScale pixels per unit of y (negative, rows grow downwards)
+     * @param yOffset pixel row of y = 0
+     */
+    public void setTransform(double xScale, double xOffset, double yScale, double yOffset) {
+        this.xScale = xScale;
+        this.xOffset = xOffset;
+        this.yScale = yScale;
+        this.yOffset = yOffset;
+    }
+
+    /**
+     * Draws every point of a buffer, green if it's marked inside the area and
+     * red otherwise
+     *
+     * @param points the points, with inside/outside flags
+     */
+    public void drawPoints(PointBuffer points) {
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+
+        for (int i = 0; i < points.size(); i++) {
+            double column = xs[i] * xScale + xOffset;
+            double row = ys[i] * yScale + yOffset;
+            if (!(column > -POINT_SIZE && column < width && row > -POINT_SIZE && row < height)) { // Also skips NaN
+                continue;
+            }
+            fillRect((int) Math.floor(column), (int) Math.floor(row), POINT_SIZE, POINT_SIZE,
+                    points.isInside(i) ? INSIDE_COLOR : OUTSIDE_COLOR);
+        }
+    }
+
+    /**
+     * Adds a Riemann slice between the x-axis and a height. Slices are only
+     * merged here, drawSlices() paints them.
+     *
+     * @param x0 left x of the slice
+     * @param x1 right x of the slice
+     * @param value height of the slice, negative below the axis
+     */
+    public void addSlice(double x0, double x1, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        addPanel(x0, x1, value, value, value);
+    }
+
+    /**
+     * Adds a slice whose top is the parabola through its left, middle and
+     * right heights, e.g. a Simpson panel. Equal heights give a rectangle and
+     * a middle height halfway between the others a trapezoid.
+     *
+     * @param x0 left x of the slice
+     * @param x1 right x of the slice
+     * @param y0 height at x0
+     * @param yMid height halfway between x0 and x1
+     * @param y1 height at x1
+     */
+    public void addPanel(double x0, double x1, double y0, double yMid, double y1) {
+        double left = x0 * xScale + xOffset;
+        double right = x1 * xScale + xOffset;
+
+        int firstColumn = (int) Math.max(0, Math.floor(left));
+        int lastColumn = (int) Math.min(width - 1, Math.max(Math.floor(left), Math.ceil(right) - 1));
+        boolean flat = y0 == yMid && yMid == y1;
+
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            double value = yMid;
+            if (!flat) {
+                // Lagrange form of the parabola at the center of the column, t = 0 at x0 and 1 at x1
+                double t = Math.max(0, Math.min(1, (column + 0.5 - left) / (right - left)));
+                value = y0 * 2 * (t - 0.5) * (t - 1) - yMid * 4 * t * (t - 1) + y1 * 2 * t * (t - 0.5);
+            }
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            double axis = yOffset;
+            double top = value * yScale + yOffset;
+            sliceTop[column] = Math.min(sliceTop[column], clampRow(Math.floor(Math.min(axis, top))));
+            sliceBottom[column] = Math.max(sliceBottom[column], clampRow(Math.ceil(Math.max(axis, top))));
+        }
+        if (right - left >= MIN_SEPARATED_SLICE_WIDTH && firstColumn <= lastColumn) {
+            separators.set(firstColumn);
+            if (lastColumn + 1 < width) {
+                separators.set(lastColumn + 1);
+            }
+        }
+    }
+
+    private int clampRow(double row) {
+        return (int) Math.max(0, Math.min(height - 1, row));
+    }
+
+    /**
+     * Paints the slices added since the last clear: a translucent fill, the
+     * outline of the covered area, and borders between slices that are wide
+     * enough to tell apart
+     */
+    public void drawSlices() {
+        for (int column = 0; column < width; column++) {
+            int top = sliceTop[column];
+            int bottom = sliceBottom[column];
+            if (top > bottom) {
+                continue;
+            }
+            boolean separator = separators.get(column);
+            for (int row = top; row <= bottom; row++) {
+                pixels[row * width + column] = (separator || row == top || row == bottom) ? SLICE_EDGE_COLOR : SLICE_FILL_COLOR;
+            }
+        }
+    }
+
+    private void fillRect(int column, int row, int rectWidth, int rectHeight, int color) {
+        int firstColumn = Math.max(0, column);
+        int lastColumn = Math.min(width, column + rectWidth);
+        int firstRow = Math.max(0, row);
+        int lastRow = Math.min(height, row + rectHeight);
+
+        for (int y = firstRow; y < lastRow; y++) {
+            Arrays.fill(pixels, y * width + firstColumn, y * width + lastColumn, color);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param column the pixel column
+     * @param row the pixel row
+     * @return the ARGB color of the pixel
+     */
+    public int getPixel(int column, int row) {
+        return pixels[row * width + column];
+    }
+
+    /**
+     * Direct access to the pixels, row-major non-premultiplied ARGB, for
+     * copying them into an image
+     *
+     * @return the backing pixel array
+     */
+    public int[] pixels() {
+        return pixels;
+    }
+}
@@ -0,0 +1,117 @@
+package com.mycompany.montecarlo.ui;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collapses bursts of input changes into a single recomputation.
+ *
+ * Every change calls request() with the effective inputs. The action only runs
+ * once no change happened for the quiet period, with the latest inputs, and is
+ * skipped entirely if those inputs are the same as the last run. Typing
+ * "100000" in a field therefore costs one run instead of six.
+ *
+ * @param <K> the effective inputs, compared with equals()
+ */
+public final class RecomputeScheduler<K> {
+
+    public static final long DEFAULT_QUIET_MILLIS = 150; // Short enough to feel immediate, longer than the gap between keystrokes
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recompute-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long quietMillis;
+    private final Executor executor; // Where the action runs, e.g. Platform::runLater
+    private final Consumer<K> action;
+
+    private ScheduledFuture<?> pending; // The run waiting for the quiet period, null if none
+    private long generation; // Incremented by every request, a timer only fires for the latest one
+    private K lastRun; // Inputs of the last run, null before the first one
+    private boolean hasRun;
+
+    private long requests; // Number of request() calls
+    private long runs; // Number of times the action ran
+
+    /**
+     * @param quietMillis how long the inputs must stay unchanged before the
+     * action runs
+     * @param executor runs the action, e.g. Platform::runLater to run it on the
+     * JavaFX Application Thread
+     * @param action the recomputation, given the latest inputs
+     */
+    public RecomputeScheduler(long quietMillis, Executor executor, Consumer<K> action) {
+        if (quietMillis < 0) {
+            throw new IllegalArgumentException("Quiet period can't be negative");
+        }
+        this.quietMillis = quietMillis;
+        this.executor = executor;
+        this.action = action;
+    }
+
+    /**
+     * Records a change of the inputs and (re)starts the quiet period
+     *
+     * @param inputs the effective inputs after the change
+     * @return true if the inputs differ from the ones of the last run, so
+     * whatever that run started is out of date
+     */
+    public synchronized boolean request(K inputs) {
+        requests++;
+        long current = ++generation;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = TIMER.schedule(() -> executor.execute(() -> fire(current, inputs)), quietMillis, TimeUnit.MILLISECONDS);
+        return !hasRun || !Objects.equals(inputs, lastRun);
+    }
+
+    private void fire(long requestGeneration, K inputs) {
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return; // A newer request is waiting for its own quiet period
+            }
+            pending = null;
+            if (hasRun && Objects.equals(inputs, lastRun)) {
+                return; // Nothing changed since the last run
+            }
+            hasRun = true;
+            lastRun = inputs;
+            runs++;
+        }
+        action.accept(inputs);
+    }
+
+    /**
+     * Forgets the last run, so the next quiet period runs the action even if
+     * the inputs end up the same. Used when the output of the last run was
+     * thrown away, e.g. because its background job was cancelled.
+     */
+    public synchronized void invalidate() {
+        hasRun = false;
+        lastRun = null;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return how many requests didn't cause a run, because they were merged
+     * into a later one or didn't change the inputs
+     */
+    public synchronized long getSaved() {
+        return requests - runs - (pending != null ? 1 : 0);
+    }
+}
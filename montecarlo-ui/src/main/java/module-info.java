@@ -0,0 +1,9 @@
+module com.mycompany.montecarlo.ui {
+    requires javafx.controls;
+    requires javafx.fxml;
+    
+    requires com.mycompany.montecarlo.core;
+    requires exp4j;
+    opens com.mycompany.montecarlo.ui to javafx.fxml;
+    exports com.mycompany.montecarlo.ui;
+}
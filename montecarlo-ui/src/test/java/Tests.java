@@ -0,0 +1,285 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+import com.mycompany.montecarlo.PointBuffer;
+import com.mycompany.montecarlo.ui.MainViewController;
+import com.mycompany.montecarlo.ui.PlotRaster;
+import com.mycompany.montecarlo.ui.RecomputeScheduler;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author 6302743
+ */
+public class Tests {
+
+    // Tests for the pixel renderer
+    @Test
+    void testRasterDrawsPoints() {
+        PlotRaster raster = new PlotRaster(100, 50);
+        raster.setTransform(10, 0, -10, 50); // x in [0, 10], y in [0, 5]
+
+        PointBuffer points = new PointBuffer(0, true);
+        points.add(1, 1);
+        points.add(5, 4);
+        points.add(-3, 1); // Off the raster, ignored
+        points.setInside(0, true);
+        raster.drawPoints(points);
+
+        assertEquals(PlotRaster.INSIDE_COLOR, raster.getPixel(10, 40));
+        assertEquals(PlotRaster.INSIDE_COLOR, raster.getPixel(11, 41));
+        assertEquals(PlotRaster.OUTSIDE_COLOR, raster.getPixel(50, 10));
+        assertEquals(0, raster.getPixel(30, 30));
+    }
+
+    @Test
+    void testRasterDrawsParabolicPanels() {
+        PlotRaster raster = new PlotRaster(100, 100);
+        raster.setTransform(100, 0, -10, 100); // x in [0, 1], y in [0, 10]
+
+        raster.addPanel(0, 1, 0, 8, 0); // Peak of 8 in the middle
+        raster.drawSlices();
+
+        assertEquals(0, raster.getPixel(50, 15), "Above the peak");
+        assertEquals(PlotRaster.SLICE_FILL_COLOR, raster.getPixel(50, 25));
+        assertEquals(0, raster.getPixel(5, 80), "The parabola is low near the edges");
+        assertEquals(PlotRaster.SLICE_FILL_COLOR, raster.getPixel(5, 97));
+    }
+
+    @Test
+    void testRasterMergesSlices() {
+        PlotRaster raster = new PlotRaster(100, 100);
+        raster.setTransform(10, 0, -10, 50); // y = 0 on row 50
+
+        // 100,000 slices over 100 columns: the state stays one span per column
+        for (int i = 0; i < 100_000; i++) {
+            double x0 = i * 1e-4;
+            raster.addSlice(x0, x0 + 1e-4, (x0 < 5) ? 2 : -3);
+        }
+        raster.drawSlices();
+
+        assertEquals(PlotRaster.SLICE_EDGE_COLOR, raster.getPixel(20, 30)); // Top of a positive slice
+        assertEquals(PlotRaster.SLICE_FILL_COLOR, raster.getPixel(20, 40));
+        assertEquals(PlotRaster.SLICE_FILL_COLOR, raster.getPixel(70, 70));
+        assertEquals(0, raster.getPixel(20, 20));
+        assertEquals(0, raster.getPixel(70, 90));
+    }
+
+    // Tests for the recompute scheduler
+    @Test
+    void testSchedulerCollapsesBursts() throws InterruptedException {
+        List<String> runs = new ArrayList<>();
+        RecomputeScheduler<String> scheduler = new RecomputeScheduler<>(50, Runnable::run, inputs -> {
+            synchronized (runs) {
+                runs.add(inputs);
+            }
+        });
+
+        // Typing "100000" one key at a time
+        String typed = "";
+        for (char key : "100000".toCharArray()) {
+            typed += key;
+            assertTrue(scheduler.request(typed));
+        }
+        Thread.sleep(300);
+
+        synchronized (runs) {
+            assertEquals(List.of("100000"), runs);
+        }
+        assertEquals(6, scheduler.getRequests());
+        assertEquals(1, scheduler.getRuns());
+        assertEquals(5, scheduler.getSaved());
+    }
+
+    @Test
+    void testSchedulerSkipsUnchangedInputs() throws InterruptedException {
+        List<String> runs = new ArrayList<>();
+        RecomputeScheduler<String> scheduler = new RecomputeScheduler<>(20, Runnable::run, inputs -> {
+            synchronized (runs) {
+                runs.add(inputs);
+            }
+        });
+
+        scheduler.request("x^2");
+        Thread.sleep(200);
+        assertFalse(scheduler.request("x^2"), "Same inputs as the last run");
+        Thread.sleep(200);
+        scheduler.request("x^3");
+        Thread.sleep(200);
+
+        synchronized (runs) {
+            assertEquals(List.of("x^2", "x^3"), runs);
+        }
+        assertEquals(1, scheduler.getSaved());
+    }
+
+    // Tests for the input valitation method: buildAndVerify
+    // Tests are executed on the buildAndVerifyCore method
+    // It mimicks the logic of the buildAndVerify method without 
+    // using any javafx classes since they are hard to pass into a test file
+    
+    
+    // Reusable array
+    private String[] netAreaArray = new String[]{"0.0"};
+
+    @BeforeEach
+    void setUp() {
+        // Reset the area array before each test to check if it's cleared on error
+        netAreaArray[0] = "0.0";
+    }
+
+    @Test
+    void testSuccessfulExecution() {
+        // Test a standard, valid case (uses the simulated area result of "0.5")
+        String result = MainViewController.buildAndVerifyCore(
+            "x*x",          // equation
+            "Trapezoidal",  // integrationMethod
+            null,           // riemannEndpoint (not needed for Trapezoidal)
+            "0",            // lowerBoundText
+            "1",            // upperBoundText
+            "100",          // numPointsText
+            netAreaArray
+        );
+        assertEquals("", result, "Should return an empty string on success.");
+        assertEquals("0.5", netAreaArray[0], "The netAreaText array should be updated with the simulated result.");
+    }
+
+    // 1. Integration Method Checks ---
+    
+    @Test
+    void testMissingIntegrationMethod() {
+        String result = MainViewController.buildAndVerifyCore("x", null, "Left", "0", "1", "10", netAreaArray);
+        assertEquals("Integration type not specified", result, "Should catch null integration method.");
+        assertEquals("", netAreaArray[0], "Area should be cleared on error.");
+    }
+
+    @Test
+    void testMissingRiemannEndpoint() {
+        String result = MainViewController.buildAndVerifyCore("x", "Riemann Sum", null, "0", "1", "10", netAreaArray);
+        assertEquals("Riemann Sum direction not specified", result, "Should catch missing endpoint for Riemann Sum.");
+        assertEquals("", netAreaArray[0], "Area should be cleared on error.");
+    }
+    
+    // 2. Input Parsing Checks (Bounds/Points) ---
+
+    @Test
+    void testInvalidLowerBoundFormat() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "not_a_number", "1", "10", netAreaArray);
+        assertEquals("Lower bound must be a valid double", result);
+    }
+    
+    @Test
+    void testInvalidUpperBoundFormat() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "0", "not a double", "10", netAreaArray);
+        assertEquals("Upper bound must be a valid double", result);
+    }
+
+    @Test
+    void testInvalidNumPointsFormat() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "0", "1", "ten", netAreaArray);
+        assertEquals("Number of points must be a valid integer", result);
+    }
+
+    // 3 and 4. Bound Order and Limit Checks ---
+    
+    @Test
+    void testLowerBoundGreaterThanUpper() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "5", "4", "10", netAreaArray);
+        assertEquals("Lower bound must be strictly less than upper bound", result);
+    }
+
+    @Test
+    void testBoundsEqual() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "1.0", "1.0", "10", netAreaArray);
+        assertEquals("Lower bound must be strictly less than upper bound", result);
+    }
+    
+    @Test
+    void testWideBoundsAccepted() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "-1000.1", "1e6", "10", netAreaArray);
+        assertEquals("", result);
+    }
+
+    @Test
+    void testLowerBoundNotFinite() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "-Infinity", "10", "10", netAreaArray);
+        assertEquals("Bounds must be finite numbers", result);
+    }
+
+    @Test
+    void testIntervalTooWide() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "-1e308", "1e308", "10", netAreaArray);
+        assertEquals("The interval is too wide", result);
+    }
+
+    // 5. Number of Points Check ---
+    
+    @Test
+    void testNumPointsZero() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "0", "1", "0", netAreaArray);
+        assertEquals("Number of points must be between 1 and 1,000,000", result);
+    }
+    
+    @Test
+    void testNumPointsTooHigh() {
+        String result = MainViewController.buildAndVerifyCore("x", "Trapezoidal", null, "0", "1", "1000001", netAreaArray);
+        assertEquals("Number of points must be between 1 and 1,000,000", result);
+    }
+
+    @Test
+    void testStreamedMethodsTakeMorePoints() {
+        String result = MainViewController.buildAndVerifyCore("x", "Monte Carlo", null, "0", "1", "10000000000", netAreaArray);
+        assertEquals("", result);
+
+        result = MainViewController.buildAndVerifyCore("x", "Riemann Sum", "Left", "0", "1", "10000000001", netAreaArray);
+        assertEquals("Number of points must be between 1 and 10,000,000,000", result);
+    }
+    
+    // 6. Equations tests
+    
+    @Test
+    void testEquationIsNull() {
+        String result = MainViewController.buildAndVerifyCore(null, "Trapezoidal", null, "0", "1", "10", netAreaArray);
+        assertEquals("No equation selected", result);
+    }
+    
+    @Test
+    void testEquationIsBlank() {
+        String result = MainViewController.buildAndVerifyCore("  ", "Trapezoidal", null, "0", "1", "10", netAreaArray);
+        assertEquals("No equation selected", result);
+    }
+
+    @Test
+    void testRestrictedTanFunction() {
+        String result = MainViewController.buildAndVerifyCore("tan(x)", "Trapezoidal", null, "0", "1", "10", netAreaArray);
+        assertEquals("Tangent and cotangent functions are not supported", result);
+    }
+
+    @Test
+    void testRestrictedRationalFunction() {
+        String result = MainViewController.buildAndVerifyCore("1/x", "Trapezoidal", null, "0", "1", "10", netAreaArray);
+        assertEquals("Rational functions aren't supported", result);
+    }
+    
+    @Test
+    void testInvalidEquationSyntax() {
+        String result = MainViewController.buildAndVerifyCore("x ^^^ 5", "Trapezoidal", null, "0", "1", "10", netAreaArray);
+        assertEquals("Invalid function", result, "Should catch a non-parsable syntax error.");
+    }
+
+    // --- 10. Continuity Check (Testing a discontinuity not covered by step 8) ---
+    
+    @Test
+    void testDiscontinuousFunction() {
+        String result = MainViewController.buildAndVerifyCore("log(x)", "Trapezoidal", null, "-1", "1", "10", netAreaArray);
+
+        assertEquals("Function is not continuous on the interval", result);
+    }
+}
@@ -1,217 +0,0 @@
-package com.mycompany.montecarlo;
-
-import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
-import javafx.stage.Stage;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import net.objecthunter.exp4j.Expression;
-import net.objecthunter.exp4j.ExpressionBuilder;
-import net.objecthunter.exp4j.ValidationResult;
-import net.objecthunter.exp4j.tokenizer.Tokenizer;
-import tk.pratanumandal.expr4j.ExpressionEvaluator;
-import tk.pratanumandal.expr4j.ExpressionEvaluator.Evaluator;
-import tk.pratanumandal.expr4j.OperatorRepository;
-import tk.pratanumandal.expr4j.common.Expr4jConstants;
-import tk.pratanumandal.expr4j.token.Function;
-
-/**
- * JavaFX App
- */
-public class App extends Application {
-
-    public static Scene scene;
-    public static Stage mainStage;
-
-    @Override
-    public void start(Stage stage) throws IOException {
-        mainStage = stage;
-        stage.setTitle("Monte Carlo Integration Visualization");
-        scene = new Scene(loadFXML("IntroUIFXML"), 800, 600);
-        scene.getStylesheets().add(getClass().getResource("stylecss.css").toString());
-        stage.setResizable(false);
-
-//        scene = new Scene(loadFXML("MainViewFXML"), 640, 480);
-        stage.setScene(scene);
-        stage.show();
-    }
-
-    static void setRoot(String fxml) throws IOException {
-        scene.setRoot(loadFXML(fxml));
-    }
-
-    private static Parent loadFXML(String fxml) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource(fxml + ".fxml"));
-        return fxmlLoader.load();
-    }
-
-    public static void main(String[] args) {
-        launch();
-    }
-
-    /**
-     * Calculates the net area under a curve for a function under a specified
-     * range. Uses the monte carlo method to estimate the area.
-     *
-     * @param function the function which must be integrated
-     * @param leftBound left bound of integration
-     * @param rightBound right bound for integration
-     * @param randPoints random points which were already generated. Used to
-     * integrate with this method
-     * @return returns an estimate of the area under the curve between the 2
-     * bounds
-     */
-    public static double integrateMonteCarlo(Expression function, double leftBound, double rightBound, HashMap<Double, Double> randPoints) {
-        double minValue = getMin(function, leftBound, rightBound);
-        double maxValue = getMax(function, leftBound, rightBound);
-
-        double counterPos = 0;
-        double counterNeg = 0;
-        
-        for (Map.Entry<Double, Double> point : randPoints.entrySet()) {
-            Double x = point.getKey();
-            Double y = point.getValue();
-
-            function.setVariable("x", x);
-            double fAtPoint = function.evaluate();
-            
-            if (fAtPoint >= 0 && fAtPoint >= y && y >= 0) {
-                counterPos += 1;
-            } else if (fAtPoint <= 0 && fAtPoint <= y && y <= 0) {
-                counterNeg += 1;
-            }
-        }
-        
-        double rectArea;
-        if (minValue >= 0) {
-            // Function is non-negative on the interval
-            rectArea = (rightBound - leftBound) * maxValue;
-        } else if (maxValue <= 0) {
-            // Function is non-positive on the interval
-            rectArea = (rightBound - leftBound) * Math.abs(minValue);
-        } else {
-            // Function crosses the x-axis (we use the full min-to-max range from getMin/getMax)
-            rectArea = (rightBound - leftBound) * (maxValue - minValue);
-        }
-
-        long numPoints = randPoints.size();
-        double posArea = (counterPos / numPoints) * rectArea;
-        double negArea = (counterNeg / numPoints) * rectArea;
-                
-        return posArea - negArea;
-    }
-
-    /**
-     * Find the minimum value (y value) of a function on the given range
-     *
-     * @param function the function
-     * @param leftBound the left bound of the range
-     * @param rightBound the right bound of the range
-     * @return the smallest y value found on the range between the 2 bounds
-     */
-    public static double getMin(Expression function, double leftBound, double rightBound) {
-        double min = Double.POSITIVE_INFINITY;
-
-        for (double i = leftBound; i <= rightBound; i += 0.0001) {
-            function.setVariable("x", i);
-            double value = function.evaluate();
-
-            if (value < min) {
-                min = value;
-            }
-        }
-
-        return min;
-    }
-
-    /**
-     * Finds the maximum y value of a function on a given range
-     *
-     * @param function the function
-     * @param leftBound the left bound of the range
-     * @param rightBound the right bound of the range
-     * @return the biggest y value found on the range between the 2 bounds
-     */
-    public static double getMax(Expression function, double leftBound, double rightBound) {
-        double max = Double.NEGATIVE_INFINITY;
-
-        for (double i = leftBound; i <= rightBound; i += 0.0001) {
-            function.setVariable("x", i);
-            double value = function.evaluate();
-
-            if (value > max) {
-                max = value;
-            }
-        }
-        return max;
-    }
-
-    /**
-     * Generates random points in a rectangle area.
-     *
-     * @param leftBound minimum x value for any generated point
-     * @param rightBound maximum x value for any generated point
-     * @param min minimum y value for any generated point. Its the minimum value
-     * of the function on the range of integration.
-     * @param max maximum y value for any generated point. Its the maximum value
-     * of the function on the range of integration.
-     * @param numPoints the number of points the user wants to generate
-     * @return returns a HashMap<Double,Double> containing all the generated
-     * points. The key in the HashMap is the x value, the value is the y value
-     * of the point.
-     */
-    public static HashMap<Double, Double> plotPoints(double leftBound, double rightBound, double min, double max, long numPoints) {
-        HashMap<Double, Double> points = new HashMap();
-        if (min >= 0) {
-            // Function is non-negative on the interval
-            min = 0;
-        } else if (max <= 0) {
-            max = 0;
-        }
-        for (int i = 0; i < numPoints; i++) {
-            double x = leftBound + (Math.random() * (rightBound - leftBound));
-            double y = min + (Math.random() * (max - min));
-            points.put(x, y);
-        }
-
-        return points;
-    }
-
-    /**
-     * Calculates the area of a function on a given range using Riemann sums
-     *
-     * @param function the function to integrate
-     * @param leftBound the left bound of integration
-     * @param rightBound the right bound of integration
-     * @param numPoints the number of rectangles to split the range in
-     * @param endPoints endpoints for the rectangles (left or right)
-     * @return Returns the area under the curve on the range as estimated by the
-     * Riemann sum method.
-     */
-    public static double integrateRiem(Expression function, double leftBound, double rightBound, long numPoints, String endPoints) {
-        double range = rightBound - leftBound;
-        double dx = range / numPoints;
-        double area = 0;
-
-        if (endPoints.equalsIgnoreCase("right")) {
-            for (long i = 1; i <= numPoints; i++) {
-                double x = leftBound + i * dx;
-                function.setVariable("x", x);
-                area += function.evaluate() * dx;
-            }
-        } else if (endPoints.equalsIgnoreCase("left")) {
-            for (long i = 0; i < numPoints; i++) {
-                double x = leftBound + i * dx;
-                function.setVariable("x", x);
-                area += function.evaluate() * dx;
-            }
-        }
-
-        return area;
-    }
-}